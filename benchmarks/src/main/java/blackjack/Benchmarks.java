@@ -0,0 +1,235 @@
+package blackjack;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks for the hot paths of the game, from looking up a card to
+ * playing a whole hand at a headless table. Build with {@code mvn package}
+ * and run with {@code java -jar benchmarks/target/benchmarks.jar -prof gc},
+ * the gc profiler adds the bytes allocated per operation as
+ * gc.alloc.rate.norm.
+ *
+ * Every benchmark is run twice, by {@code SingleThread} on one thread and by
+ * {@code AllThreads} on every available processor, each thread with its own
+ * state, so contention shows up as a drop in per thread throughput. The
+ * only state the threads share is the Metrics of the metrics table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class Benchmarks{
+	/**
+	 * The benchmarks on one thread
+	 */
+	@Threads(1)
+	public static class SingleThread extends Benchmarks{
+	}
+
+	/**
+	 * The benchmarks on a thread per available processor
+	 */
+	@Threads(Threads.MAX)
+	public static class AllThreads extends Benchmarks{
+	}
+
+	//Steps through the card codes
+	@State(Scope.Thread)
+	public static class Codes{
+		int i;
+	}
+
+	//A deck that is made again once it runs out
+	@State(Scope.Thread)
+	public static class Decks{
+		Deck deck = Deck.createDeck();
+	}
+
+	//A hand of three cards, one of them an ace
+	@State(Scope.Thread)
+	public static class Hands{
+		final Hand hand = Hand.newHand();
+
+		@Setup public void setUp(){
+			hand.addCard(0);
+			hand.addCard(5);
+			hand.addCard(22);
+		}
+	}
+
+	//A dealer dealing to one player from a six deck shoe
+	@State(Scope.Thread)
+	public static class Deals{
+		Dealer dealer;
+		Player player;
+
+		@Setup public void setUp(){
+			dealer = Dealer.startGame(Hand.newHand(), Shoe.createShoe(6, 0.75));
+			player = Player.joinGame(Hand.newHand(), 500);
+			dealer.setPlayer(player);
+			player.setDealer(dealer);
+		}
+	}
+
+	//The Metrics every thread of the metrics table records into
+	@State(Scope.Benchmark)
+	public static class Shared{
+		final Metrics metrics = new Metrics();
+	}
+
+	/**
+	 * A headless table with one bot, and what it does besides playing:
+	 * none, record into the shared Metrics, log every hand to a HandLog in
+	 * a temporary directory, or publish its events to an EventBus with one
+	 * handler. Whatever the table opened is closed, and the directory
+	 * deleted, once the trial is done
+	 */
+	@State(Scope.Thread)
+	public static class Tables{
+		@Param({"none", "metrics", "log", "bus"})
+		public String with;
+
+		Table table;
+		Path dir;    //the HandLog directory, null when not logging
+		EventBus bus;
+
+		@Setup public void setUp(Shared shared) throws IOException{
+			table = Bot.botTable(10, Shoe.createShoe(6, 0.75));
+			switch(with){
+				case "metrics":
+					table.setMetrics(shared.metrics);
+					break;
+				case "log":
+					dir = Files.createTempDirectory("hands");
+					table.setHistory(HandLog.open(dir, 64 << 20, 0, table));
+					break;
+				case "bus":
+					bus = EventBus.create(1 << 14, EventBus.Wait.PARK, new EventBus.Handler(){
+						long cards;
+						public void onEvent(EventBus.Slot e, boolean endOfBatch){
+							if(e.card() != GameEvent.NO_CARD)
+								cards++;
+						}
+					});
+					table.setEvents(bus.publisher(0));
+					break;
+				default:
+					break;
+			}
+		}
+
+		@TearDown public void tearDown() throws IOException{
+			table.close();
+			if(bus != null)
+				bus.close();
+			if(dir != null)
+				delete(dir);
+		}
+	}
+
+	//A headless table with a bot at every seat
+	@State(Scope.Thread)
+	public static class FullTables{
+		Table table;
+
+		@Setup public void setUp(){
+			table = Bot.botTable(Table.MAX_SEATS, 10, Shoe.createShoe(6, 0.75));
+		}
+
+		@TearDown public void tearDown(){
+			table.close();
+		}
+	}
+
+	@Benchmark public int cardValueOf(Codes c){
+		return Card.valueOf(c.i++ & 63).code();
+	}
+
+	@Benchmark public int deckCreateDeck(){
+		return Deck.createDeck().deckSize();
+	}
+
+	@Benchmark public int deckRemoveNext(Decks d){
+		if(d.deck.empty())
+			d.deck = Deck.createDeck();
+		return d.deck.removeNext().code();
+	}
+
+	@Benchmark public int handGetHandValue(Hands h){
+		return h.hand.getHandValue();
+	}
+
+	@Benchmark public boolean handHasAce(Hands h){
+		return h.hand.hasAce();
+	}
+
+	@Benchmark public int handCountAces(Hands h){
+		return h.hand.countAces();
+	}
+
+	@Benchmark public int dealerDeal(Deals d){
+		d.dealer.viewHand().bust();
+		d.player.viewHand().bust();
+		d.dealer.deal();
+		return d.dealer.viewHand().getHandValue();
+	}
+
+	@Benchmark public int tablePlayHand(Tables t){
+		Player player = t.table.getPlayer();
+		if(player.getPot() <= 0)
+			player.refreshPot();
+		t.table.playHand();
+		return player.getPot();
+	}
+
+	@Benchmark public int tablePlayHandAllSeats(FullTables t){
+		for(int s = 0; s < t.table.seats(); ++s)
+			if(t.table.getPlayer(s).getPot() <= 0)
+				t.table.getPlayer(s).refreshPot();
+		t.table.playHand();
+		return t.table.getPlayer(0).getPot();
+	}
+
+	/**
+	 * Deletes a directory and everything in it
+	 * @param {@code Path}
+	 */
+	private static void delete(Path dir) throws IOException{
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>(){
+			@Override public FileVisitResult visitFile(Path file, java.nio.file.attribute.BasicFileAttributes attrs)
+					throws IOException{
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException{
+				if(e != null)
+					throw e;
+				Files.delete(d);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Usage: java -cp benchmarks/target/benchmarks.jar blackjack.Benchmarks [name regex]
+	 * Runs the benchmarks whose names match, every one by default, with the
+	 * gc profiler. The jar itself runs the JMH command line
+	 */
+	public static void main(String[] args) throws RunnerException{
+		Options options = new OptionsBuilder()
+			.include(args.length > 0 ? args[0] : Benchmarks.class.getName())
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,280 @@
+package blackjack;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Follows many bankrolls through a run of hands, to see how often a player
+ * goes broke and how far a bankroll swings on the way. Every path starts a
+ * fresh table with the starting bankroll and plays it until the hands run
+ * out or the money does, with the bets sized by the tables strategy.
+ *
+ * Paths are split across a ForkJoinPool, every task keeps its results in
+ * plain long[] histograms, and the histograms of two tasks are merged by
+ * adding them up. Path i always shuffles from
+ * {@code ShuffleSource.stream(seed, i)}, so a run can be repeated exactly
+ * however the work was split. The histograms use the buckets of
+ * Metrics.Histogram, so every percentile is good to one eighth.
+ */
+public final class BankrollSimulator{
+	private static final int LEAF = 8;        //paths played by a task without splitting further
+	private static final int CHECKPOINTS = 10; //points along the run where bankrolls are recorded
+	private static final double[] PERCENTILES = {5, 25, 50, 75, 95};
+
+	private final int paths;           //bankrolls followed
+	private final int hands;           //hands played on each path, unless ruined first
+	private final int bankroll;        //starting bankroll of every path
+	private final long seed;           //master seed of the run
+	private final Simulator.Tables tables; //creates the table of each path
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code int}, {@code int}, {@code int}, {@code long}, {@code Simulator.Tables}
+	 */
+	private BankrollSimulator(int paths, int hands, int bankroll, long seed, Simulator.Tables tables){
+		this.paths = paths;
+		this.hands = hands;
+		this.bankroll = bankroll;
+		this.seed = seed;
+		this.tables = tables;
+	}
+
+	/**
+	 * Static factory method
+	 * @param {@code int} -- number of paths
+	 * @param {@code int} -- hands on each path
+	 * @param {@code int} -- starting bankroll
+	 * @param {@code long} -- master seed
+	 * @param {@code Simulator.Tables} -- creates a headless table for a
+	 * path, its strategy sizes the bets
+	 * @return {@code BankrollSimulator}
+	 */
+	public static BankrollSimulator create(int paths, int hands, int bankroll, long seed, Simulator.Tables tables){
+		if(paths < 1 || hands < 1 || bankroll < 1)
+			throw new IllegalArgumentException("paths: " + paths + " hands: " + hands + " bankroll: " + bankroll);
+		return new BankrollSimulator(paths, hands, bankroll, seed, tables);
+	}
+
+	/**
+	 * Follows every path in the common ForkJoinPool
+	 * @return {@code Report}
+	 */
+	public Report run(){
+		long start = System.nanoTime();
+		Tally t = ForkJoinPool.commonPool().invoke(new Paths(0, paths));
+		return new Report(this, t, System.nanoTime() - start);
+	}
+
+	/**
+	 * Follows a range of paths, splitting it in half until it is small
+	 */
+	private final class Paths extends RecursiveTask<Tally>{
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+
+		private Paths(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override protected Tally compute(){
+			if(to - from <= LEAF){
+				Tally t = new Tally();
+				for(int i = from; i < to; ++i)
+					follow(i, t);
+				return t;
+			}
+			int mid = (from + to) >>> 1;
+			Paths left = new Paths(from, mid);
+			left.fork();
+			Tally t = new Paths(mid, to).compute();
+			t.merge(left.join());
+			return t;
+		}
+	}
+
+	/**
+	 * The hands played by a checkpoint, spread evenly over the run so the
+	 * last one is always the end of the run
+	 * @param {@code int} -- hands in the run, {@code int} -- the checkpoint, from 0
+	 * @return {@code int}
+	 */
+	private static int checkpoint(int hands, int c){
+		return (int) ((long) hands * (c + 1) / CHECKPOINTS);
+	}
+
+	/**
+	 * Plays one path and adds it to the tally
+	 * @param {@code int} -- the path, {@code Tally}
+	 */
+	private void follow(int path, Tally t){
+		Table table;
+		try{
+			table = tables.create(path, ShuffleSource.stream(seed, path));
+		} catch(Exception e){
+			throw new IllegalStateException("Could not create the table of path " + path, e);
+		}
+		Player player = table.getPlayer();
+		player.refreshPot(bankroll);
+		long peak = bankroll, drawdown = 0;
+		int played = 0;
+		int next = 0; //the next checkpoint to record
+		//a run shorter than CHECKPOINTS hands has checkpoints before the first hand
+		for(; next < CHECKPOINTS && checkpoint(hands, next) == 0; ++next)
+			t.checkpoints[next][Metrics.Histogram.bucket(bankroll)]++;
+		while(played < hands && player.getPot() > 0){
+			table.playHand();
+			played++;
+			int pot = player.getPot();
+			peak = Math.max(peak, pot);
+			drawdown = Math.max(drawdown, peak - pot);
+			for(; next < CHECKPOINTS && checkpoint(hands, next) == played; ++next)
+				t.checkpoints[next][Metrics.Histogram.bucket(Math.max(0, pot))]++;
+		}
+		if(player.getPot() <= 0){
+			t.ruined++;
+			t.ruinTimes[Metrics.Histogram.bucket(played)]++;
+			//a ruined bankroll stays at 0 for the rest of the run
+			for(int c = next; c < CHECKPOINTS; ++c)
+				t.checkpoints[c][0]++;
+		}
+		t.finals[Metrics.Histogram.bucket(player.getPot())]++;
+		t.drawdowns[Metrics.Histogram.bucket(drawdown)]++;
+		t.hands += played;
+		table.close();
+	}
+
+	/**
+	 * Histograms of the paths followed by one task. Only touched by that
+	 * task until it is merged into its parent
+	 */
+	private static final class Tally{
+		private final long[] finals = new long[Metrics.Histogram.BUCKETS];    //bankroll at the end
+		private final long[] drawdowns = new long[Metrics.Histogram.BUCKETS]; //largest drop from a peak
+		private final long[] ruinTimes = new long[Metrics.Histogram.BUCKETS]; //hands played before going broke
+		private final long[][] checkpoints = new long[CHECKPOINTS][Metrics.Histogram.BUCKETS];
+		private long ruined, hands;
+
+		//adds the counts of another tally
+		private void merge(Tally t){
+			add(finals, t.finals);
+			add(drawdowns, t.drawdowns);
+			add(ruinTimes, t.ruinTimes);
+			for(int c = 0; c < CHECKPOINTS; ++c)
+				add(checkpoints[c], t.checkpoints[c]);
+			ruined += t.ruined;
+			hands += t.hands;
+		}
+
+		private static void add(long[] to, long[] from){
+			for(int i = 0; i < to.length; ++i)
+				to[i] += from[i];
+		}
+	}
+
+	/**
+	 * The result of a run
+	 * @Immutable
+	 */
+	public static final class Report{
+		private final int paths, hands, bankroll;
+		private final long seed, nanos;
+		private final Tally tally;
+
+		private Report(BankrollSimulator s, Tally tally, long nanos){
+			paths = s.paths;
+			hands = s.hands;
+			bankroll = s.bankroll;
+			seed = s.seed;
+			this.tally = tally;
+			this.nanos = nanos;
+		}
+
+		//The part of all paths that went broke
+		public double riskOfRuin(){
+			return (double) tally.ruined / paths;
+		}
+
+		/**
+		 * A percentile of the final bankrolls
+		 * @param {@code double} -- between 0 and 100
+		 * @return {@code long}
+		 */
+		public long finalBankroll(double percentile){
+			return Metrics.Snapshot.percentile(tally.finals, percentile);
+		}
+
+		/**
+		 * A percentile of the largest drop from a peak on each path
+		 * @param {@code double} -- between 0 and 100
+		 * @return {@code long}
+		 */
+		public long drawdown(double percentile){
+			return Metrics.Snapshot.percentile(tally.drawdowns, percentile);
+		}
+
+		/**
+		 * A percentile of the bankrolls after a part of the run
+		 * @param {@code int} -- checkpoint, 0 to 9, the bankrolls after
+		 * (checkpoint + 1) tenths of the hands
+		 * @param {@code double} -- between 0 and 100
+		 * @return {@code long}
+		 */
+		public long bankroll(int checkpoint, double percentile){
+			return Metrics.Snapshot.percentile(tally.checkpoints[checkpoint], percentile);
+		}
+
+		//writes the chosen percentiles of a histogram
+		private static void percentiles(StringBuilder sb, long[] counts){
+			for(double p : PERCENTILES)
+				sb.append(String.format(" p%-2.0f=%-8d", p, Metrics.Snapshot.percentile(counts, p)));
+			sb.append(String.format("%n"));
+		}
+
+		@Override public String toString(){
+			StringBuilder sb = new StringBuilder();
+			double seconds = nanos / 1e9;
+			sb.append(String.format("%d paths of %d hands from %d, seed %d: %d hands in %.2fs, %.0f hands/sec%n",
+				paths, hands, bankroll, seed, tally.hands, seconds, tally.hands / seconds));
+			sb.append(String.format("Risk of ruin: %.2f%% (%d paths)%n", 100 * riskOfRuin(), tally.ruined));
+			if(tally.ruined > 0){
+				sb.append("Hands to ruin:  ");
+				percentiles(sb, tally.ruinTimes);
+			}
+			sb.append("Final bankroll: ");
+			percentiles(sb, tally.finals);
+			sb.append("Max drawdown:   ");
+			percentiles(sb, tally.drawdowns);
+			sb.append(String.format("Bankroll by hands played:%n"));
+			for(int c = 0; c < CHECKPOINTS; ++c){
+				sb.append(String.format("%14d:", checkpoint(hands, c)));
+				percentiles(sb, tally.checkpoints[c]);
+			}
+			return sb.toString().trim();
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.BankrollSimulator [paths] [hands] [bankroll] [seed]
+	 * Follows a flat betting bot and a counting bot with the same bankroll
+	 */
+	public static void main(String[] args){
+		int paths = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int hands = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int bankroll = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : ShuffleSource.random().seed();
+		System.out.println("Flat betting 10:");
+		System.out.println(BankrollSimulator.create(paths, hands, bankroll, seed, new Simulator.Tables(){
+			public Table create(int id, ShuffleSource source){
+				return Bot.botTable(10, Shoe.createShoe(6, 0.75, source));
+			}
+		}).run());
+		System.out.println("\nCounting, 10 to 80 with the Hi-Lo true count:");
+		System.out.println(BankrollSimulator.create(paths, hands, bankroll, seed, new Simulator.Tables(){
+			public Table create(int id, ShuffleSource source){
+				Bot b = Bot.counting(Hand.newHand(), 0, StrategyTable.basic(), 10, 8);
+				return Table.createTable(b, b, Shoe.createShoe(6, 0.75, source));
+			}
+		}).run());
+	}
+}
@@ -0,0 +1,104 @@
+package blackjack;
+
+/**
+ * A player that plays by itself. Every move is looked up in a StrategyTable,
+ * so a table with a bot sitting at it can run without anyone at the console.
+ * A bot either bets the same amount on every hand or, when given a spread,
+ * raises its bet with the Hi-Lo true count.
+ */
+public class Bot extends Player implements PlayerStrategy{
+	private final StrategyTable strategy; //the chart the bot plays by
+	private final int bet;                //the amount bet on every hand, or the betting unit
+	private final int spread;             //largest bet in units, 1 for flat betting
+	
+	/**
+	 * Private constructor to be used in the static factory methods
+	 * @param Hand, int, StrategyTable, int, int
+	 */
+	private Bot(Hand hand, int pot, StrategyTable strategy, int bet, int spread){
+		super(hand, pot);
+		this.strategy = strategy;
+		this.bet = bet;
+		this.spread = spread;
+	}
+	
+	/**
+	 * Static factory method to create a bot
+	 * @param {@code Hand}, {@code int} -- starting pot
+	 * @param {@code StrategyTable} -- the chart to play by
+	 * @param {@code int} -- the amount to bet on every hand
+	 * @return {@code Bot}
+	 */
+	public static Bot create(Hand hand, int pot, StrategyTable strategy, int bet){
+		return new Bot(hand, pot, strategy, bet, 1);
+	}
+	
+	/**
+	 * Static factory method to create a bot that counts cards. It bets one
+	 * unit at a true count of 2 or less, and one more unit for each point
+	 * above that, up to the spread
+	 * @param {@code Hand}, {@code int} -- starting pot
+	 * @param {@code StrategyTable} -- the chart to play by
+	 * @param {@code int} -- the betting unit
+	 * @param {@code int} -- the largest bet, in units
+	 * @return {@code Bot}
+	 */
+	public static Bot counting(Hand hand, int pot, StrategyTable strategy, int unit, int spread){
+		if(spread < 1)
+			throw new IllegalArgumentException("Spread must be at least 1: " + spread);
+		return new Bot(hand, pot, strategy, unit, spread);
+	}
+	
+	/**
+	 * Seats a new bot playing basic strategy at a headless table dealt from
+	 * the given shoe
+	 * @param {@code int} -- the amount to bet on every hand, {@code Shoe}
+	 * @return {@code Table}
+	 */
+	public static Table botTable(int bet, Shoe shoe){
+		Bot b = create(Hand.newHand(), 500, StrategyTable.basic(), bet);
+		return Table.createTable(b, b, shoe);
+	}
+	
+	/**
+	 * Seats a bot playing basic strategy in every seat of a headless table
+	 * dealt from the given shoe
+	 * @param {@code int} -- number of seats, 1 to 7
+	 * @param {@code int} -- the amount each bot bets on every hand, {@code Shoe}
+	 * @return {@code Table}
+	 */
+	public static Table botTable(int seats, int bet, Shoe shoe){
+		Bot[] bots = new Bot[seats];
+		for(int i = 0; i < seats; ++i)
+			bots[i] = create(Hand.newHand(), 500, StrategyTable.basic(), bet);
+		return Table.createTable(bots, bots, shoe);
+	}
+	
+	public int nextBet(int pot, CardCount count){
+		if(spread == 1)
+			return bet;
+		int units = (int) count.hiLoTrueCount() - 1;
+		return bet * Math.max(1, Math.min(spread, units));
+	}
+	
+	/**
+	 * Looks the move up in the chart, as allowed at the table right now.
+	 * A surrender the table does not offer is played as the hand would be
+	 * without doubling
+	 */
+	public Table.Move nextMove(Hand hand, Card dealerCard){
+		Table t = getTable();
+		Table.Move m = strategy.move(hand, dealerCard, t.canDouble(), t.canSplit());
+		if(m == Table.Move.SURRENDER && !t.canSurrender())
+			m = strategy.move(hand, dealerCard, false, t.canSplit());
+		return m;
+	}
+	
+	public static void main(String[] args){
+		Table t = Bot.botTable(10, Shoe.createShoe(6, 0.75));
+		for(int i = 0; i < 10; ++i){
+			t.playHand();
+			System.out.println(t.lastOutcome() + " " + t.getPlayer().getPot());
+		}
+	}
+}
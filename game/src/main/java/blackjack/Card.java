@@ -1,3 +1,5 @@
+package blackjack;
+
 import java.util.*;
 
 /**
@@ -26,32 +28,99 @@ public final class Card{
 		CLUBS, HEARTS, DIAMONDS, SPADES;
 	}
 	
+	public static final int DECK_SIZE = 52; //number of distinct cards, codes run from 0 to 51
+	
+	private static final Rank[] RANKS = Rank.values();
+	private static final Suit[] SUITS = Suit.values();
+	
+	//lookup tables indexed by card code, the rank and suit ordinals and the value of each card
+	private static final byte[] RANK_OF = new byte[DECK_SIZE];
+	private static final byte[] SUIT_OF = new byte[DECK_SIZE];
+	private static final byte[] VALUE_OF = new byte[DECK_SIZE];
+	
+	//the only Card instances that will ever exist, one per code
+	private static final Card[] CARDS = new Card[DECK_SIZE];
+	
+	static{
+		for(int code = 0; code < DECK_SIZE; ++code){
+			Rank r = RANKS[code % RANKS.length];
+			Suit s = SUITS[code % SUITS.length];
+			RANK_OF[code] = (byte) r.ordinal();
+			SUIT_OF[code] = (byte) s.ordinal();
+			VALUE_OF[code] = (byte) r.value;
+			CARDS[code] = new Card(r, s, code);
+		}
+	}
+	
 	private final Rank cardRank; //The rank of the card
 	private final Suit cardSuit; //The suit of the card
+	private final int code;      //The code of the card, 0 - 51
 	
 	/**
-	 * valueOf -- static factory, creates a card by using the private
-	 * constructor to initialize a card based on an {@code int}
+	 * valueOf -- static factory, returns the canonical card for an
+	 * {@code int}. Numbers past 51 wrap around, so the same card is
+	 * returned for num and num + 52. No card is created, every call
+	 * for the same code returns the same instance
 	 * @return {@code Card}
 	 * @param {@code int}
 	 */
 	public static Card valueOf(int num){
-		int suitNum = num % 4;
-		int rankNum = num % 13;
-		Rank[] ranks = Rank.values();
-		Suit[] suits = Suit.values();
-		Card c = new Card(ranks[rankNum], suits[suitNum]);
-		return c;
+		return CARDS[num % DECK_SIZE];
 	}
 	
 	/**
 	 * Constructor for creating a Card object. Uses a Rank and Suit to
-	 * initialize the number. Private constructor, it is only used in 
-	 * the static factory method.
+	 * initialize the number. Private constructor, it is only used to
+	 * fill the table of canonical cards.
 	 */
-	private Card(Rank cardRank, Suit cardSuit){
+	private Card(Rank cardRank, Suit cardSuit, int code){
 		this.cardRank = cardRank;
 		this.cardSuit = cardSuit;
+		this.code = code;
+	}
+	
+	/**
+	 * The rank of a card code, 0 for an ace up to 12 for a king
+	 * @param {@code int} -- card code
+	 * @return {@code int}
+	 */
+	public static int rankOf(int code){
+		return RANK_OF[code];
+	}
+	
+	/**
+	 * The suit of a card code, from 0 to 3
+	 * @param {@code int} -- card code
+	 * @return {@code int}
+	 */
+	public static int suitOf(int code){
+		return SUIT_OF[code];
+	}
+	
+	/**
+	 * The value of a card code, an ace counts as one
+	 * @param {@code int} -- card code
+	 * @return {@code int}
+	 */
+	public static int cardValue(int code){
+		return VALUE_OF[code];
+	}
+	
+	/**
+	 * Determines whether a card code is an ace
+	 * @param {@code int} -- card code
+	 * @return {@code boolean}
+	 */
+	public static boolean isAce(int code){
+		return RANK_OF[code] == 0;
+	}
+	
+	/**
+	 * The code of this card, {@code Card.valueOf(c.code()) == c}
+	 * @return {@code int}
+	 */
+	public int code(){
+		return code;
 	}
 	
 	/**
@@ -64,9 +133,9 @@ public final class Card{
 	 * cannot be equal. A String will never be equal to an Integer.
 	 * Since we previously tested the type of o, it's safe to case o
 	 * to type Card, and give a reference to it. Finally, compare the
-	 * enum constants of the card, only is both the rank and suit of
-	 * this is equal to the rank and suit of o(or c), will true be 
-	 * returned
+	 * codes of the cards, the code determines both the rank and suit.
+	 * Since there is only one instance per code the identity test
+	 * almost always decides
 	 * @return {@code boolean} -- true if this.equals(o), else false
 	 * @param {@code Object} -- item to be compared to this
 	 */
@@ -76,16 +145,15 @@ public final class Card{
 		if(!(o instanceof Card))
 			return false;
 		Card c = (Card) o;
-		return cardRank.equals(c.cardRank) && cardSuit.equals(c.cardSuit);
+		return code == c.code;
 	}
 	
 	/**
-	 * uses the values of the Enums hashCode and adds them together with 31,
-   	 * as seen in Effective Java
+	 * the code is unique for every card, so it is a perfect hash
 	 * @return int
 	 */
 	@Override public int hashCode(){
-		return 31 + cardSuit.hashCode() + cardRank.hashCode();
+		return code;
 	}
 	
 	/**
@@ -111,7 +179,7 @@ public final class Card{
 	 * @return {@code boolean}
 	 */
 	public boolean isAce(){
-		return cardRank.equals(Rank.ACE);
+		return RANK_OF[code] == 0;
 	}
 	
 	/**
@@ -119,7 +187,7 @@ public final class Card{
 	 * @return {@code int}
 	 */
 	public int cardValue(){
-		return cardRank.value;
+		return VALUE_OF[code];
 	}
 	
 	/**
@@ -0,0 +1,29 @@
+package blackjack;
+
+/**
+ * A read only view of the card counts kept by a Shoe. The counts are kept
+ * up to date as each card is dealt, so reading them is just reading a field.
+ * Views are meant to be read by the thread dealing from the shoe, such as
+ * a strategy choosing its next bet.
+ */
+public interface CardCount{
+	//Hi-Lo running count, 2 - 6 count +1, 7 - 9 count 0, tens and aces count -1
+	int hiLo();
+	
+	//KO running count, 2 - 7 count +1, 8 and 9 count 0, tens and aces count -1.
+	//Starts at 4 - 4 * decks so that it reaches +4 around a true count of +2
+	int ko();
+	
+	//Omega II running count, 2, 3 and 7 count +1, 4 - 6 count +2, 8 and aces
+	//count 0, 9 counts -1 and tens count -2
+	int omegaTwo();
+	
+	//Decks not yet dealt, in fractions of a deck
+	double decksRemaining();
+	
+	//Hi-Lo running count divided by the decks remaining
+	double hiLoTrueCount();
+	
+	//Omega II running count divided by the decks remaining
+	double omegaTwoTrueCount();
+}
@@ -0,0 +1,215 @@
+package blackjack;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Shows the events of a table as text. Events are queued and written out by
+ * a background thread, so the table never waits on the console. Output is
+ * buffered and flushed whenever the queue runs dry, so a prompt is always
+ * on screen by the time the table is waiting for an answer.
+ */
+public final class ConsoleRenderer implements GameListener{
+	private static final GameEvent CLOSE = GameEvent.prompt(null); //tells the writer to stop
+	private static final String LINE = "------------------------------";
+
+	private final BlockingQueue<GameEvent> queue = new LinkedBlockingQueue<GameEvent>();
+	private final PrintWriter out;
+	private final Thread writer;
+
+	//the hands as built up from the events, only touched by the writer thread
+	private final List<Card> playerCards = new ArrayList<Card>();
+	private final List<Card> dealerCards = new ArrayList<Card>();
+	private int playerValue, dealerValue;
+
+	/**
+	 * Private constructor, the writer thread is started by the static factory
+	 * @param {@code OutputStream}, {@code ThreadFactory}
+	 */
+	private ConsoleRenderer(OutputStream out, ThreadFactory threads){
+		this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out)));
+		writer = threads.newThread(new Runnable(){
+			public void run(){
+				write();
+			}
+		});
+	}
+
+	/**
+	 * Static factory method, creates a renderer writing to the stream from
+	 * a daemon thread
+	 * @param {@code OutputStream}
+	 * @return {@code ConsoleRenderer}
+	 */
+	public static ConsoleRenderer create(OutputStream out){
+		return create(out, new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread t = new Thread(r, "console-renderer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Static factory method, creates a renderer writing to the stream from
+	 * a thread made by the factory, such as a virtual thread
+	 * @param {@code OutputStream}, {@code ThreadFactory}
+	 * @return {@code ConsoleRenderer}
+	 */
+	public static ConsoleRenderer create(OutputStream out, ThreadFactory threads){
+		ConsoleRenderer r = new ConsoleRenderer(out, threads);
+		r.writer.start();
+		return r;
+	}
+
+	//Queues the event, never blocks
+	public void onEvent(GameEvent e){
+		queue.offer(e);
+	}
+
+	//Writes out every queued event, then stops the writer thread
+	@Override public void close(){
+		queue.offer(CLOSE);
+		try{
+			writer.join();
+		} catch(InterruptedException ie){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//Runs on the writer thread, takes events until closed
+	private void write(){
+		List<GameEvent> batch = new ArrayList<GameEvent>();
+		try{
+			while(true){
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for(GameEvent e : batch){
+					if(e == CLOSE){
+						out.flush();
+						return;
+					}
+					render(e);
+				}
+				batch.clear();
+				if(queue.isEmpty())
+					out.flush();
+			}
+		} catch(InterruptedException ie){
+			out.flush();
+		}
+	}
+
+	/**
+	 * Writes out a single event
+	 * @param {@code GameEvent}
+	 */
+	private void render(GameEvent e){
+		boolean dealer = e.seat() == GameEvent.DEALER;
+		switch(e.type()){
+			case BET:
+				playerCards.clear();
+				dealerCards.clear();
+				break;
+			case DEAL:
+				if(dealer){
+					dealerCards.add(Card.valueOf(e.card()));
+					dealerValue = e.value();
+					renderTable();
+				}
+				else{
+					playerCards.add(Card.valueOf(e.card()));
+					playerValue = e.value();
+					if(!dealerCards.isEmpty()) //the second card of a split hand
+						renderTable();
+				}
+				break;
+			case HOLE:
+				dealerCards.add(Card.valueOf(e.card()));
+				dealerValue = e.value();
+				renderDealer();
+				break;
+			case HIT:
+				if(dealer){
+					out.println("Dealer has hit");
+					dealerCards.add(Card.valueOf(e.card()));
+					dealerValue = e.value();
+					renderDealer();
+				}
+				else{
+					out.println("Player has hit");
+					playerCards.add(Card.valueOf(e.card()));
+					playerValue = e.value();
+					renderTable();
+				}
+				break;
+			case STAND:
+				out.println((dealer ? "Dealer" : "Player") + " stands on " + e.value());
+				break;
+			case DOUBLE:
+				out.println("Player doubles");
+				playerCards.add(Card.valueOf(e.card()));
+				playerValue = e.value();
+				renderTable();
+				break;
+			case SPLIT:
+				out.println("Player splits, " + e.value() + " hands");
+				playerCards.remove(playerCards.size() - 1);
+				break;
+			case HAND:
+				out.println("Playing hand " + (e.value() + 1));
+				playerCards.clear();
+				playerCards.add(Card.valueOf(e.card()));
+				break;
+			case BUST:
+				out.println((dealer ? "Dealer" : "Player") + " busts with " + e.value());
+				break;
+			case WIN:
+				out.println("You won!");
+				out.println(e.value());
+				break;
+			case BLACKJACK:
+				out.println("Blackjack! You won!");
+				out.println(e.value());
+				break;
+			case LOSE:
+				out.println("You lost!");
+				out.println(e.value());
+				break;
+			case PUSH:
+				out.println("Push");
+				break;
+			case SURRENDER:
+				out.println("You surrendered, half your bet is returned");
+				out.println(e.value());
+				break;
+			case PROMPT:
+				out.println(e.text());
+				break;
+		}
+	}
+
+	//Writes the players hand and the dealers face up card
+	private void renderTable(){
+		out.println(LINE);
+		for(Card c : playerCards)
+			out.print(c);
+		out.println("\nHand Value: " + playerValue);
+		out.println("\n\nDealer card:");
+		if(!dealerCards.isEmpty())
+			out.print(dealerCards.get(0));
+		out.println(LINE);
+	}
+
+	//Writes the dealers whole hand
+	private void renderDealer(){
+		out.println(LINE);
+		out.println("Dealer hand:\n");
+		for(Card c : dealerCards)
+			out.print(c);
+		out.println("\n" + dealerValue);
+		out.println(LINE);
+	}
+}
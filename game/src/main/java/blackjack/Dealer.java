@@ -0,0 +1,148 @@
+package blackjack;
+
+import java.util.*;
+
+public class Dealer implements Person{
+	private Person[] players = new Person[0]; //The players the dealer is playing against, one per seat
+	private final Hand hand; //The dealers hand
+	private final Shoe shoe; //The shoe the dealer deals from
+	private Metrics metrics; //records cards dealt and reshuffles, null when not measured
+	private int[] round = new int[2];        //codes of the cards of one deal
+	
+	/**
+	 * Private constructor to be used in static factory method
+	 * @param Hand, Shoe
+	 */
+	private Dealer(Hand hand, Shoe shoe){
+		this.hand = hand;
+		this.shoe = shoe;
+	}
+	
+	//Static factory method
+	public static Dealer startGame(Hand hand, Shoe shoe){
+		Dealer d = new Dealer(hand, shoe);
+		return d;
+	}
+	
+	//adds a card to the dealers hand
+	public Card hit(){
+		int code = dealNextCode();
+		hand.addCard(code);
+		return Card.valueOf(code);
+	}
+	
+	//Deals the next card from the shoe
+	public Card dealNext(){
+		return Card.valueOf(dealNextCode());
+	}
+	
+	//Deals the code of the next card from the shoe, reshuffling if it has run out
+	public int dealNextCode(){
+		if(shoe.empty())
+			reshuffle();
+		if(metrics != null)
+			metrics.cardDealt();
+		return shoe.next();
+	}
+	
+	//Reshuffles the shoe once the cut card has been reached
+	public void newDeck(){
+		if(shoe.cutCardReached())
+			reshuffle();
+	}
+	
+	//Puts every card back in the shoe and shuffles it
+	private void reshuffle(){
+		shoe.shuffle();
+		if(metrics != null)
+			metrics.reshuffled();
+	}
+	
+	//Records cards dealt and reshuffles into the metrics, null stops recording
+	public void setMetrics(Metrics metrics){
+		this.metrics = metrics;
+	}
+	
+	//sets up the player for the dealer to play against
+	public void setPlayer(Person player){
+		setPlayers(new Person[]{player});
+	}
+	
+	/**
+	 * Sets up the players for the dealer to play against, one per seat,
+	 * in the order they are dealt to
+	 * @param {@code Person[]}
+	 */
+	public void setPlayers(Person[] players){
+		this.players = players.clone();
+		round = new int[2 * (players.length + 1)];
+	}
+	
+	/**
+	 * Deals two cards to every seat and to the dealer, reshuffling first if
+	 * the cut card was reached. Each time round the dealer gets a card and
+	 * then every seat in turn. The cards of the whole round are taken from
+	 * the shoe in one pass and then put into the hands
+	 */
+	public void deal(){
+		newDeck();
+		int n = round.length;
+		if(shoe.remaining() >= n){
+			shoe.next(round, n);
+			if(metrics != null)
+				metrics.cardsDealt(n);
+		}
+		else{
+			//the shoe runs out during the round, deal one card at a time
+			for(int i = 0; i < n; ++i)
+				round[i] = dealNextCode();
+		}
+		int c = 0;
+		for(int i = 0; i < 2; ++i){
+			hand.addCard(round[c++]);
+			for(Person p : players)
+				p.viewHand().addCard(round[c++]);
+		}
+	}
+	
+	//The shoe the dealer deals from
+	public Shoe viewShoe(){
+		return shoe;
+	}
+	
+	//displays the dealer hand as viewable by the player
+	public Card displayPlayerView(){
+		return hand.viewFirst();
+	}
+	
+	public Hand viewHand(){
+		return hand;
+	}
+	
+	@Override public String toString(){
+		return hand.toString() + "\nHand Value: " + hand.bestValue() + "\n";
+	}
+	
+	public static void main(String[] args){
+		Shoe s = Shoe.createShoe(6, 0.75);
+		
+		Hand h = new Hand(new ArrayList<Card>());
+		Hand h1 = new Hand(new ArrayList<Card>());
+		
+		Dealer dealer = Dealer.startGame(h, s);
+		Player player = Player.joinGame(h1, 500);
+		
+		dealer.setPlayer(player);
+		player.setDealer(dealer);
+		dealer.deal();
+		
+		System.out.println(dealer);
+		System.out.println(player);
+		
+		player.hit();
+		player.hit();
+		
+		System.out.println(dealer);
+		System.out.println(player);
+	}
+}	
\ No newline at end of file
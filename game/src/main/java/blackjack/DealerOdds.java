@@ -0,0 +1,224 @@
+package blackjack;
+
+import java.util.*;
+
+/**
+ * Computes the exact probability of each final dealer total, 17 through 21
+ * or bust, for a dealer up card and the cards left in the shoe. Every draw
+ * the dealer could make is followed, using the stand rule of the rules
+ * given, {@code Rules.dealerStands}.
+ *
+ * Results for each dealer hand are cached, keyed on the number of cards of
+ * each value left in the shoe along with the dealers total. The key says
+ * exactly which cards remain, so an entry never goes stale as cards are
+ * dealt, it just stops being asked for. The cache has a fixed number of
+ * slots and a new entry replaces whatever was in its slot.
+ * Not thread safe, use one instance per thread.
+ */
+public final class DealerOdds{
+	public static final int OUTCOMES = 6; //final totals 17 - 21, then bust
+	public static final int BUST = 5;     //index of the bust probability
+
+	private static final int MAX_CARDS = 24; //more cards than any dealer hand can hold
+
+	private final long[] keys;      //packed composition of each cached entry
+	private final int[] states;     //dealer total of each cached entry, -1 when empty
+	private final double[] results; //OUTCOMES probabilities per cached entry
+	private final int mask;
+	private final Rules rules;      //decides when the dealer stands
+
+	private final double[][] scratch = new double[MAX_CARDS][OUTCOMES]; //per draw depth
+	private final int[] counts = new int[Shoe.VALUES];                  //composition being explored
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code int}, {@code Rules}
+	 */
+	private DealerOdds(int slots, Rules rules){
+		this.rules = rules;
+		keys = new long[slots];
+		states = new int[slots];
+		results = new double[slots * OUTCOMES];
+		mask = slots - 1;
+		Arrays.fill(states, -1);
+	}
+
+	//Static factory method, for a dealer playing by the standard rules
+	public static DealerOdds create(int cacheBits){
+		return create(cacheBits, Rules.standard());
+	}
+
+	/**
+	 * Static factory method
+	 * @param {@code int} -- the cache holds 2^cacheBits entries
+	 * @param {@code Rules} -- the rules the dealer plays by
+	 * @return {@code DealerOdds}
+	 */
+	public static DealerOdds create(int cacheBits, Rules rules){
+		if(cacheBits < 1 || cacheBits > 24)
+			throw new IllegalArgumentException("cacheBits must be between 1 and 24: " + cacheBits);
+		return new DealerOdds(1 << cacheBits, rules);
+	}
+
+	/**
+	 * The distribution of the dealers final total for the up card against
+	 * the cards that have not been dealt from the shoe
+	 * @param {@code int} -- value of the up card, 1 for an ace
+	 * @param {@code Shoe} -- the up card must already have been dealt
+	 * @param {@code boolean} -- the dealer has checked for blackjack,
+	 * so the hole card cannot make one
+	 * @return {@code double[]} -- probabilities of 17 - 21 and bust
+	 */
+	public double[] distribution(int upValue, Shoe shoe, boolean peeked){
+		for(int v = 1; v <= Shoe.VALUES; ++v)
+			counts[v - 1] = shoe.remaining(v);
+		return distribution(upValue, counts, peeked);
+	}
+
+	/**
+	 * The distribution of the dealers final total for the up card against
+	 * the given cards
+	 * @param {@code int} -- value of the up card, 1 for an ace
+	 * @param {@code int[]} -- number of cards of each value, indexed by value - 1
+	 * @param {@code boolean} -- the dealer has checked for blackjack
+	 * @return {@code double[]} -- probabilities of 17 - 21 and bust
+	 */
+	public double[] distribution(int upValue, int[] composition, boolean peeked){
+		int left = 0;
+		for(int v = 0; v < Shoe.VALUES; ++v){
+			counts[v] = composition[v];
+			left += composition[v];
+		}
+		//a natural only comes from the hole card, so it can be excluded here
+		int excluded = !peeked ? -1 : upValue == 1 ? Shoe.VALUES - 1 : upValue == 10 ? 0 : -1;
+		if(excluded >= 0)
+			left -= counts[excluded];
+		double[] out = new double[OUTCOMES];
+		for(int v = 0; v < Shoe.VALUES; ++v){
+			if(counts[v] == 0 || v == excluded)
+				continue;
+			double p = (double) counts[v] / left;
+			counts[v]--;
+			double[] next = draw(upValue + v + 1, upValue == 1 || v == 0, left - 1 + (excluded >= 0 ? counts[excluded] : 0), 1);
+			counts[v]++;
+			for(int o = 0; o < OUTCOMES; ++o)
+				out[o] += p * next[o];
+		}
+		return out;
+	}
+
+	/**
+	 * Expected value of standing on a total against the up card, in units
+	 * of the bet with winning hands paid even money. Assumes the dealer has
+	 * checked for blackjack
+	 * @param {@code int} -- the players total, at most 21
+	 * @param {@code int} -- value of the up card, 1 for an ace
+	 * @param {@code Shoe}
+	 * @return {@code double}
+	 */
+	public double standEv(int playerTotal, int upValue, Shoe shoe){
+		return standEv(playerTotal, distribution(upValue, shoe, true));
+	}
+
+	/**
+	 * Expected value of standing on a total against a dealer distribution
+	 * @param {@code int}, {@code double[]}
+	 * @return {@code double}
+	 */
+	public static double standEv(int playerTotal, double[] dealer){
+		double ev = dealer[BUST];
+		for(int o = 0; o < BUST; ++o){
+			int total = 17 + o;
+			if(total < playerTotal)
+				ev += dealer[o];
+			else if(total > playerTotal)
+				ev -= dealer[o];
+		}
+		return ev;
+	}
+
+	/**
+	 * Distribution for a dealer hand with {@code counts} left to draw from.
+	 * The result is only valid until the next call at the same depth
+	 * @param {@code int} -- hard total
+	 * @param {@code boolean} -- the hand has an ace
+	 * @param {@code int} -- number of cards left
+	 * @param {@code int} -- number of draws made so far, picks the scratch row
+	 * @return {@code double[]}
+	 */
+	private double[] draw(int hard, boolean ace, int left, int depth){
+		double[] out = scratch[depth];
+		Arrays.fill(out, 0);
+		if(hard > 21){
+			out[BUST] = 1;
+			return out;
+		}
+		boolean soft = ace && hard <= 11;
+		int best = soft ? hard + 10 : hard;
+		if(rules.dealerStands(best, soft)){
+			out[best - 17] = 1;
+			return out;
+		}
+		long key = pack(counts);
+		int state = ace ? hard | 32 : hard;
+		int slot = slot(key, state);
+		if(states[slot] == state && keys[slot] == key){
+			System.arraycopy(results, slot * OUTCOMES, out, 0, OUTCOMES);
+			return out;
+		}
+		for(int v = 0; v < Shoe.VALUES; ++v){
+			if(counts[v] == 0)
+				continue;
+			double p = (double) counts[v] / left;
+			counts[v]--;
+			double[] next = draw(hard + v + 1, ace || v == 0, left - 1, depth + 1);
+			counts[v]++;
+			for(int o = 0; o < OUTCOMES; ++o)
+				out[o] += p * next[o];
+		}
+		keys[slot] = key;
+		states[slot] = state;
+		System.arraycopy(out, 0, results, slot * OUTCOMES, OUTCOMES);
+		return out;
+	}
+
+	/**
+	 * Packs a composition into a long, six bits per count for aces
+	 * through nines and eight bits for tens. Eight decks fit
+	 * @param {@code int[]}
+	 * @return {@code long}
+	 */
+	private static long pack(int[] counts){
+		long key = 0;
+		for(int v = 0; v < Shoe.VALUES - 1; ++v)
+			key = (key << 6) | counts[v];
+		return (key << 8) | counts[Shoe.VALUES - 1];
+	}
+
+	//picks the cache slot for a key
+	private int slot(long key, int state){
+		long h = (key ^ (key >>> 29) ^ ((long) state << 56)) * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 40) & mask;
+	}
+
+	public static void main(String[] args){
+		DealerOdds odds = DealerOdds.create(16);
+		Shoe full = Shoe.createShoe(6, 1.0);
+		int[] counts = new int[Shoe.VALUES];
+		for(int up = 1; up <= 10; ++up){
+			for(int v = 1; v <= Shoe.VALUES; ++v)
+				counts[v - 1] = full.remaining(v);
+			counts[up - 1]--;
+			long start = System.nanoTime();
+			double[] d = odds.distribution(up, counts, true);
+			long nanos = System.nanoTime() - start;
+			StringBuilder sb = new StringBuilder("Up " + up + ":");
+			double sum = 0;
+			for(double p : d){
+				sb.append(String.format(" %.4f", p));
+				sum += p;
+			}
+			System.out.println(sb + String.format("  sum %.6f  stand 16 EV %.4f  %dus", sum, standEv(16, d), nanos / 1000));
+		}
+	}
+}
@@ -1,3 +1,5 @@
+package blackjack;
+
 import java.util.*;
 
 /**
@@ -5,30 +7,38 @@ import java.util.*;
  * A representation of a deck of cards, a deck of cards has 52
  * individual cards. Each card should be unique from the previous
  * card. There will be Ace - King of each suit. There are 13 ranks
- * per card, and 4 suits
+ * per card, and 4 suits. The cards are held in a single deck Shoe,
+ * so removing a card does not move the rest of the deck. Like a Shoe,
+ * a deck is used by one thread at a time and takes no locks
  */
  
  public final class Deck{
-	private List<Card> deck;
+	private final Shoe deck;
 	
 	/**
 	 * Private constructor to create a deck of cards
+	 * @param {@code ShuffleSource}
 	 */
-	private Deck(){
-		deck = new ArrayList<Card>();
-		for(int i = 0; i < 52; ++i)
-			deck.add(Card.valueOf(i));
+	private Deck(ShuffleSource source){
+		deck = Shoe.createShoe(1, 1.0, source);
 	}
 	
 	/**
-	 * Static factory method to create a deck of cards
+	 * Static factory method to create a shuffled deck of cards
 	 * @return {@code Deck}
 	 */
 	public static Deck createDeck(){
-		Deck d = new Deck();
-		for(int i = 0; i < 3; ++i)
-			Collections.shuffle(d.deck);
-		return d;
+		return new Deck(ShuffleSource.random());
+	}
+	
+	/**
+	 * Static factory method to create a deck shuffled from the given
+	 * source, the same seed gives the same deck
+	 * @param {@code ShuffleSource}
+	 * @return {@code Deck}
+	 */
+	public static Deck createDeck(ShuffleSource source){
+		return new Deck(source);
 	}
 	
 	/**
@@ -36,19 +46,22 @@ import java.util.*;
 	 * @return {@code Card}
 	 */
 	public Card removeNext(){
-		synchronized(deck){
-			Card c = deck.remove(0);
-			return c;
-		}
+		return Card.valueOf(removeNextCode());
+	}
+	
+	/**
+	 * Removes the first card from a deck of cards and returns its code
+	 * @return {@code int}
+	 */
+	public int removeNextCode(){
+		return deck.next();
 	}
 	
 	/**
 	 * Determines whether the deck is empty or not
 	 */
 	public boolean empty(){
-		synchronized(deck){
-			return deck.isEmpty();
-		}
+		return deck.empty();
 	}
 	
 	/**
@@ -58,25 +71,22 @@ import java.util.*;
 	 * @return {@code String}
 	 */
 	@Override public String toString(){
-		StringBuilder sb = new StringBuilder();
-		synchronized(deck){
-			sb.append("Cards:\n");
-			for(Card c : deck)
-				sb.append(c);
-			return sb.toString();
-		}
+		return deck.toString();
 	}
 	
 	//Size of the deck of cards
 	public int deckSize(){
-		synchronized(deck){
-			return deck.size();
-		}
+		return deck.remaining();
 	}	
 	
+	//The running card counts of the deck
+	public CardCount count(){
+		return deck.count();
+	}
+	
 	//Shuffles a deck of cards 
 	public void shuffleDeck(){
-		Collections.shuffle(deck);
+		deck.shuffleRemaining();
 	}
 	
 	public static void main(String[] args){
@@ -91,4 +101,4 @@ import java.util.*;
 			System.out.println(c);
 		
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,390 @@
+package blackjack;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries the events of many tables to handlers running on their own
+ * threads, such as loggers, metrics and analytics, without the tables ever
+ * waiting on them unless a handler falls a whole ring behind.
+ *
+ * Every table publishes into its own ring of slots, so each ring has a
+ * single producer and needs no compare and swap. The slots are made with
+ * the ring and filled in place, publishing an event allocates nothing.
+ * The producer fills the slot after its cursor and then moves the cursor
+ * on. Each handler has one thread, which sweeps every ring and hands it
+ * all the events published since its last visit as one batch, then moves
+ * its own sequence for that ring on. A producer only waits when the
+ * slowest handler of its ring is a full ring behind.
+ *
+ * How a thread waits, for events or for room in a ring, is up to the
+ * {@code Wait} the bus is made with.
+ */
+public final class EventBus implements AutoCloseable{
+	/**
+	 * How a thread waits when it finds nothing to do
+	 * SPIN  keeps checking, lowest latency, burns a core per waiting thread
+	 * YIELD spins a little then gives up the processor between checks
+	 * PARK  spins, yields, then sleeps a little longer each time, up to a
+	 *       millisecond, the least cpu when idle
+	 */
+	public enum Wait{
+		SPIN{
+			void idle(int tries){
+				Thread.onSpinWait();
+			}
+		},
+		YIELD{
+			void idle(int tries){
+				if(tries < 100)
+					Thread.onSpinWait();
+				else
+					Thread.yield();
+			}
+		},
+		PARK{
+			void idle(int tries){
+				if(tries < 100)
+					Thread.onSpinWait();
+				else if(tries < 200)
+					Thread.yield();
+				else
+					LockSupport.parkNanos(Math.min(1000000L, 1000L << Math.min(10, (tries - 200) / 100)));
+			}
+		};
+
+		/**
+		 * Waits once
+		 * @param {@code int} -- how many times in a row the caller has waited
+		 */
+		abstract void idle(int tries);
+	}
+
+	/**
+	 * Receives the events of every table, on the handlers own thread. The
+	 * slot is only valid during the call, it is reused once the batch is done
+	 */
+	public interface Handler{
+		/**
+		 * Called for every event of every table, in order for each table
+		 * @param {@code Slot} -- the event
+		 * @param {@code boolean} -- this is the last event of a batch
+		 */
+		void onEvent(Slot event, boolean endOfBatch);
+
+		//called on the handlers thread once the bus is closed and every event handled
+		default void close(){
+		}
+	}
+
+	/**
+	 * One reusable event. Only the producer writes a slot, and only before
+	 * publishing it, handlers only read it
+	 */
+	public static final class Slot{
+		private int table;
+		private long round;
+		private GameEvent.Type type;
+		private int seat;
+		private int card;
+		private int value;
+
+		private Slot(){
+		}
+
+		//the id of the table the event happened at
+		public int table(){
+			return table;
+		}
+
+		//the round of the table, counted from 0
+		public long round(){
+			return round;
+		}
+
+		public GameEvent.Type type(){
+			return type;
+		}
+
+		//the seat, or GameEvent.DEALER
+		public int seat(){
+			return seat;
+		}
+
+		//code of the card, GameEvent.NO_CARD when the event has no card
+		public int card(){
+			return card;
+		}
+
+		//what the value holds depends on the type, see GameEvent.Type
+		public int value(){
+			return value;
+		}
+
+		@Override public String toString(){
+			return "table " + table + " round " + round + " " + type + " seat " + seat
+				+ (card == GameEvent.NO_CARD ? "" : " " + Card.valueOf(card).toString().trim()) + " " + value;
+		}
+	}
+
+	private final int size;            //slots in each ring, a power of two
+	private final Wait wait;
+	private final Handler[] handlers;
+	private final Thread[] threads;
+	private volatile Publisher[] rings = new Publisher[0]; //copied whenever a ring is added or removed
+	private volatile boolean closed;
+
+	/**
+	 * Private constructor, the handler threads are started by the static factory
+	 * @param {@code int}, {@code Wait}, {@code Handler[]}
+	 */
+	private EventBus(int size, Wait wait, Handler[] handlers){
+		this.size = size;
+		this.wait = wait;
+		this.handlers = handlers;
+		threads = new Thread[handlers.length];
+		for(int i = 0; i < handlers.length; ++i){
+			final int index = i;
+			threads[i] = new Thread(new Runnable(){
+				public void run(){
+					consume(index);
+				}
+			}, "event-handler-" + i);
+			threads[i].setDaemon(true);
+		}
+	}
+
+	/**
+	 * Static factory method, starts a thread for each handler
+	 * @param {@code int} -- slots in each tables ring, a power of two
+	 * @param {@code Wait} -- how producers and handlers wait
+	 * @param {@code Handler...} -- at least one
+	 * @return {@code EventBus}
+	 */
+	public static EventBus create(int ringSize, Wait wait, Handler... handlers){
+		if(ringSize < 2 || Integer.bitCount(ringSize) != 1)
+			throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+		if(handlers.length == 0)
+			throw new IllegalArgumentException("Need at least one handler");
+		EventBus bus = new EventBus(ringSize, wait, handlers.clone());
+		for(Thread t : bus.threads)
+			t.start();
+		return bus;
+	}
+
+	/**
+	 * A new ring for a table to publish into. The table is the only thread
+	 * that may publish to it
+	 * @param {@code int} -- id of the table, passed along with its events
+	 * @return {@code Publisher}
+	 */
+	public synchronized Publisher publisher(int table){
+		if(closed)
+			throw new IllegalStateException("Bus is closed");
+		Publisher p = new Publisher(table);
+		Publisher[] r = Arrays.copyOf(rings, rings.length + 1);
+		r[r.length - 1] = p;
+		rings = r;
+		return p;
+	}
+
+	//Drops a ring once every handler has seen its events
+	private synchronized void remove(Publisher p){
+		List<Publisher> r = new ArrayList<Publisher>(Arrays.asList(rings));
+		r.remove(p);
+		rings = r.toArray(new Publisher[0]);
+	}
+
+	/**
+	 * The ring of one table. Publishing is only ever done by the thread
+	 * playing the table, so the cursor is moved on with an ordered write
+	 */
+	public final class Publisher{
+		private final int table;
+		private final Slot[] slots = new Slot[size];
+		private final int mask = size - 1;
+		private final AtomicLong cursor = new AtomicLong(-1);  //last published sequence
+		private final AtomicLongArray consumed;                //last sequence each handler has handled
+		private long next;                                     //next sequence to publish, producer only
+		private long gate = -1;                                //slowest handler last time it was checked, producer only
+
+		private Publisher(int table){
+			this.table = table;
+			for(int i = 0; i < size; ++i)
+				slots[i] = new Slot();
+			consumed = new AtomicLongArray(handlers.length);
+			for(int i = 0; i < handlers.length; ++i)
+				consumed.set(i, -1);
+		}
+
+		/**
+		 * Publishes an event, waiting only if a handler is a whole ring behind
+		 * @param {@code long} -- round, {@code GameEvent.Type}, {@code int} -- seat
+		 * @param {@code int} -- card code, {@code int} -- value
+		 */
+		public void publish(long round, GameEvent.Type type, int seat, int card, int value){
+			long seq = next++;
+			long wrap = seq - size;
+			if(wrap > gate){
+				for(int tries = 0; (gate = slowest()) < wrap; ++tries)
+					wait.idle(tries);
+			}
+			Slot s = slots[(int) seq & mask];
+			s.table = table;
+			s.round = round;
+			s.type = type;
+			s.seat = seat;
+			s.card = card;
+			s.value = value;
+			cursor.setRelease(seq);
+		}
+
+		//The last sequence every handler has handled
+		private long slowest(){
+			long min = Long.MAX_VALUE;
+			for(int i = 0; i < consumed.length(); ++i)
+				min = Math.min(min, consumed.getAcquire(i));
+			return min;
+		}
+
+		//The id of the table
+		public int table(){
+			return table;
+		}
+
+		/**
+		 * Waits until every handler has seen the events published so far,
+		 * then takes the ring off the bus. Called by the table when it is done
+		 */
+		public void close(){
+			long last = next - 1;
+			for(int tries = 0; slowest() < last && !closed; ++tries)
+				wait.idle(tries);
+			remove(this);
+		}
+
+		/**
+		 * Hands every event published since the handler last looked to it
+		 * @param {@code int} -- index of the handler
+		 * @return {@code int} -- events handled
+		 */
+		private int drain(int h){
+			long from = consumed.getPlain(h) + 1;
+			long to = cursor.getAcquire();
+			if(to < from)
+				return 0;
+			Handler handler = handlers[h];
+			for(long seq = from; seq <= to; ++seq)
+				handler.onEvent(slots[(int) seq & mask], seq == to);
+			consumed.setRelease(h, to);
+			return (int) (to - from + 1);
+		}
+	}
+
+	//Runs on the thread of a handler, sweeps every ring until the bus is closed and drained
+	private void consume(int h){
+		int tries = 0;
+		while(true){
+			boolean done = closed;
+			int handled = 0;
+			for(Publisher p : rings)
+				handled += p.drain(h);
+			if(handled > 0)
+				tries = 0;
+			else if(done)
+				break;
+			else
+				wait.idle(tries++);
+		}
+		handlers[h].close();
+	}
+
+	/**
+	 * Stops the bus once every handler has handled every event already
+	 * published. Tables should be done publishing first
+	 */
+	@Override public void close(){
+		closed = true;
+		for(Thread t : threads){
+			try{
+				t.join();
+			} catch(InterruptedException ie){
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.EventBus [tables] [rounds per table] [spin|yield|park]
+	 * Plays bot tables on a thread each, publishing their events to a bus
+	 * with two handlers, one counting events by type and one adding up the
+	 * pots of settled hands, and reports the events per second
+	 */
+	public static void main(String[] args) throws Exception{
+		int tables = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		final long rounds = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+		Wait wait = args.length > 2 ? Wait.valueOf(args[2].toUpperCase()) : Wait.PARK;
+		final long[] byType = new long[GameEvent.Type.values().length]; //only touched by the first handler
+		final long[] settled = new long[2];                             //only touched by the second handler
+		EventBus bus = EventBus.create(1 << 14, wait, new Handler(){
+			public void onEvent(Slot e, boolean endOfBatch){
+				byType[e.type().ordinal()]++;
+			}
+		}, new Handler(){
+			public void onEvent(Slot e, boolean endOfBatch){
+				switch(e.type()){
+					case WIN:
+					case BLACKJACK:
+					case LOSE:
+					case PUSH:
+					case SURRENDER:
+						settled[0]++;
+						settled[1] += e.value();
+						break;
+					default:
+						break;
+				}
+			}
+		});
+		ExecutorService pool = Executors.newFixedThreadPool(tables);
+		List<Future<?>> games = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		for(int i = 0; i < tables; ++i){
+			final Publisher p = bus.publisher(i);
+			games.add(pool.submit(new Callable<Void>(){
+				public Void call(){
+					Table t = Bot.botTable(10, Shoe.createShoe(6, 0.75));
+					t.setEvents(p);
+					for(long r = 0; r < rounds; ++r){
+						if(t.getPlayer().getPot() <= 0)
+							t.getPlayer().refreshPot();
+						t.playHand();
+					}
+					t.close();
+					return null;
+				}
+			}));
+		}
+		for(Future<?> f : games)
+			f.get();
+		bus.close();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+		long events = 0;
+		for(long n : byType)
+			events += n;
+		System.out.println(String.format("%d tables, %d rounds each, %s wait: %d events in %.2fs, %.0f events/sec",
+			tables, rounds, wait, events, seconds, events / seconds));
+		GameEvent.Type[] types = GameEvent.Type.values();
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < types.length; ++i)
+			if(byType[i] > 0)
+				sb.append(types[i]).append(' ').append(byType[i]).append("  ");
+		System.out.println(sb);
+		System.out.println(String.format("Settled hands: %d  Mean pot after settling: %.1f",
+			settled[0], settled[0] == 0 ? 0.0 : (double) settled[1] / settled[0]));
+	}
+}
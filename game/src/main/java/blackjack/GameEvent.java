@@ -0,0 +1,94 @@
+package blackjack;
+
+/**
+ * Something that happened at a table, passed to the tables GameListener.
+ * Events only hold card codes and numbers, a listener that wants to show
+ * the table keeps track of the hands itself from the events it is given.
+ * @Immutable
+ */
+public final class GameEvent{
+	public static final int PLAYER = 0;  //seat of the player
+	public static final int DEALER = -1; //seat used for the dealer
+	public static final int NO_CARD = -1;
+	
+	/**
+	 * The kinds of events, and what their card and value hold
+	 * BET      value is the amount bet
+	 * DEAL     card dealt face up in the opening deal, or the second card of a
+	 *          split hand, value is the hands total
+	 * HOLE     the dealers face down card being turned over, value is the hands total
+	 * HIT      card drawn by a hit, value is the hands total
+	 * STAND    value is the total stood on
+	 * DOUBLE   the one card drawn by doubling, value is the hands total
+	 * SPLIT    card moved to a new hand by splitting, value is the number of hands
+	 * HAND     play moves on to another hand of the seat, card is its first
+	 *          card, value is the number of the hand, counted from 0
+	 * BUST     value is the total that went over 21
+	 * WIN, BLACKJACK, LOSE, PUSH, SURRENDER   the hand was settled, value is the players pot
+	 * PROMPT   the player is asked for input, the text holds the question
+	 */
+	public enum Type{
+		BET, DEAL, HOLE, HIT, STAND, DOUBLE, SPLIT, HAND, BUST, WIN, BLACKJACK, LOSE, PUSH, SURRENDER, PROMPT;
+	}
+	
+	private final Type type;
+	private final int seat;
+	private final int card;
+	private final int value;
+	private final String text;
+	
+	//private constructor used by the static factory methods
+	private GameEvent(Type type, int seat, int card, int value, String text){
+		this.type = type;
+		this.seat = seat;
+		this.card = card;
+		this.value = value;
+		this.text = text;
+	}
+	
+	/**
+	 * Static factory for an event about a seat
+	 * @param {@code Type}, {@code int} -- seat, {@code int} -- card code or NO_CARD, {@code int} -- value
+	 * @return {@code GameEvent}
+	 */
+	public static GameEvent of(Type type, int seat, int card, int value){
+		return new GameEvent(type, seat, card, value, null);
+	}
+	
+	/**
+	 * Static factory for a question put to the player
+	 * @param {@code String}
+	 * @return {@code GameEvent}
+	 */
+	public static GameEvent prompt(String text){
+		return new GameEvent(Type.PROMPT, PLAYER, NO_CARD, 0, text);
+	}
+	
+	public Type type(){
+		return type;
+	}
+	
+	public int seat(){
+		return seat;
+	}
+	
+	//code of the card, NO_CARD when the event has no card
+	public int card(){
+		return card;
+	}
+	
+	public int value(){
+		return value;
+	}
+	
+	//text of a prompt, null for other events
+	public String text(){
+		return text;
+	}
+	
+	@Override public String toString(){
+		if(type == Type.PROMPT)
+			return "PROMPT " + text;
+		return type + " seat " + seat + (card == NO_CARD ? "" : " " + Card.valueOf(card).toString().trim()) + " " + value;
+	}
+}
@@ -0,0 +1,24 @@
+package blackjack;
+
+/**
+ * Receives the events of a table, on the thread playing the table. A
+ * listener should return quickly, anything slow like writing to the console
+ * should be handed off to another thread.
+ */
+public interface GameListener{
+	/**
+	 * Ignores every event. Tables check for this listener and do not
+	 * create events at all when it is set
+	 */
+	GameListener NONE = new GameListener(){
+		public void onEvent(GameEvent e){
+		}
+	};
+	
+	//called for every event at the table, in order
+	void onEvent(GameEvent e);
+	
+	//called when the table is done, a listener can flush anything it is holding
+	default void close(){
+	}
+}
@@ -0,0 +1,229 @@
+package blackjack;
+
+import java.util.*;
+
+/**
+ * Players hand of cards in a game of Blackjack. Initial size is two cards, and when the
+ * player hits, a card will be added to the hand. The hand keeps track of the value the
+ * hand is worth, as well as determining whether the hand contains an ace, and how many
+ * it contains. Alongside the cards the hand keeps itself packed into a long, see
+ * PackedHand, which is updated with one add as each card comes in, so reading the totals
+ * never walks the cards and code that wants the packed hand gets it for free.
+ * A hand that keeps taking cards well past 21, which no table does, outgrows
+ * the packed form, its packed value then stays as it was, still bust, and
+ * the hard total and aces are worked out from the cards.
+ *
+ * A hand belongs to the table it is dealt at and is only changed and read by
+ * the thread playing that table, so it takes no locks. Anything on another
+ * thread that wants to know how a table is doing reads {@code Table.snapshot()}
+ * rather than the hands.
+ */
+
+public class Hand{
+	private final List<Card> hand; //underlying list which represents the hand
+	private long packed;           //the rank counts, hard total and size of the hand, see PackedHand
+	private boolean spilled;       //the hand outgrew packed, which no longer takes its cards
+	
+	/**
+	 * Constructor for a hand of cards
+	 * @param List<Card>
+	 */
+	public Hand(List<Card> hand){
+		this.hand = hand;
+		for(Card c : hand)
+			pack(c);
+	}
+	
+	//Creates a new empty hand
+	public static Hand newHand(){
+		return new Hand(new ArrayList<Card>());
+	}
+	
+	/**
+	 * Adds a card to the hand
+	 * @param {@code Card}
+	 */
+	public void addCard(Card c){
+		hand.add(c);
+		pack(c);
+	}
+
+	//Adds a card to the packed hand while it has room, see PackedHand.hasRoom
+	private void pack(Card c){
+		if(!spilled && PackedHand.hasRoom(packed))
+			packed = PackedHand.add(packed, c.code());
+		else
+			spilled = true;
+	}
+	
+	/**
+	 * Adds the card with the given code to the hand
+	 * @param {@code int} -- card code
+	 */
+	public void addCard(int code){
+		addCard(Card.valueOf(code));
+	}
+	
+	/**
+	 * Returns the value of a hand by simply adding each cards value,
+	 * every ace is counted as one
+	 * @return {@code int}
+	 */
+	public int getHandValue(){
+		if(spilled){
+			int value = 0;
+			for(Card c : hand)
+				value += c.cardValue();
+			return value;
+		}
+		return PackedHand.hardTotal(packed);
+	}
+	
+	/**
+	 * Returns the best value of the hand, one ace is counted as eleven
+	 * when that does not take the hand over 21
+	 * @return {@code int}
+	 */
+	public int bestValue(){
+		return spilled ? getHandValue() : PackedHand.bestValue(packed);
+	}
+	
+	/**
+	 * Determines whether the hand is soft, it holds an ace that is
+	 * being counted as eleven
+	 * @return {@code boolean}
+	 */
+	public boolean isSoft(){
+		return PackedHand.isSoft(packed);
+	}
+	
+	/**
+	 * Determines whether the hand is a blackjack, an ace and a ten
+	 * valued card as the first two cards
+	 * @return {@code boolean}
+	 */
+	public boolean isBlackjack(){
+		return PackedHand.isBlackjack(packed);
+	}
+	
+	/**
+	 * Determines whether the hand has gone over 21
+	 * @return {@code boolean}
+	 */
+	public boolean isBust(){
+		return PackedHand.isBust(packed);
+	}
+	
+	/**
+	 * Determines whether the hand is a pair, two cards of the same value
+	 * @return {@code boolean}
+	 */
+	public boolean isPair(){
+		return PackedHand.isPair(packed);
+	}
+	
+	//Number of cards in the hand
+	public int size(){
+		return hand.size();
+	}
+	
+	/**
+	 * Creates a String representation of a hand of cards, the format is
+	 * Cards:
+	 * Then the toString of each card in the hand on one line
+	 * @return {@code String}
+	 */
+	@Override public String toString(){
+		StringBuilder sb = new StringBuilder();
+		for(Card c : hand)
+			sb.append(c);
+		return sb.toString();
+	}
+	
+	/**
+	 * Takes the last card off the hand, used to split a pair into two hands
+	 * @return {@code Card}
+	 */
+	public Card removeLast(){
+		Card c = hand.remove(hand.size() - 1);
+		if(spilled){
+			spilled = false;
+			packed = 0;
+			for(Card d : hand)
+				pack(d);
+		}
+		else
+			packed = PackedHand.remove(packed, c.code());
+		return c;
+	}
+	
+	/**
+	 * Clears out the hand, used when a player busts(goes over 21)
+	 */
+	public void bust(){
+		hand.clear();
+		packed = 0;
+		spilled = false;
+	}
+	
+	/**
+	 * Determines whether there is an Ace in the hand
+	 * @return {@code boolean}
+	 */
+	public boolean hasAce(){
+		return countAces() > 0;
+	}
+	
+	/**
+	 * Determines how many aces can be found in the hand
+	 * @return {@code int}
+	 */
+	public int countAces(){
+		if(spilled){
+			int aces = 0;
+			for(Card c : hand)
+				if(c.isAce())
+					aces++;
+			return aces;
+		}
+		return PackedHand.aces(packed);
+	}
+	
+	/**
+	 * The hand packed into a long, see PackedHand. Kept up to date as cards
+	 * come in, so getting it costs nothing. A hand well past 21 that has
+	 * outgrown it gets the last value that fit, which is bust
+	 * @return {@code long}
+	 */
+	public long packed(){
+		return packed;
+	}
+	
+	//Shows the card at the given position in the hand, 0 is the first card dealt
+	public Card cardAt(int i){
+		return hand.get(i);
+	}
+	
+	//Shows the first card in the hand
+	public Card viewFirst(){
+		return hand.get(0);
+	}
+	
+	public static void main(String[] args){
+		List<Card> cards = new ArrayList<Card>();
+		for(int i = 0; i < 8; ++i)
+			cards.add(Card.valueOf(i));
+		Hand h = new Hand(cards);
+		System.out.println("Has Aces: " + h.hasAce());
+		System.out.println("Number of Aces: " + h.countAces());
+		System.out.println(h);
+		System.out.println("Hand Value: " + h.getHandValue());
+		for(int i = 0; i < 3; ++i)
+			h.addCard(Card.valueOf(i * 4));
+		System.out.println("Has Aces: " + h.hasAce());
+		System.out.println("Number of Aces: " + h.countAces());
+		System.out.println(h);
+		System.out.println("Hand Value: " + h.getHandValue());
+		System.out.println("Best Value: " + h.bestValue() + " Soft: " + h.isSoft() + " Bust: " + h.isBust());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,470 @@
+package blackjack;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * An append only log of every hand played at a table, written in a compact
+ * binary form through memory mapped segment files. A new segment is started
+ * whenever the current one is full, so no file grows without bound, and the
+ * pages are handed to the operating system as they are written, only forced
+ * to disk every so many hands, when a segment is full and on close.
+ *
+ * A segment starts with a header,
+ * the magic bytes BJHL, a version byte, the tables rules packed by
+ * {@code Rules.code()} as a long and the penetration of the shoe as a
+ * double. Then come the hands, each one
+ * <pre>
+ *   flags        1 byte, bit 7 always set, bits 0-2 the Outcome,
+ *                bit 3 a shoe seed follows, bit 4 the shoe ran out and was
+ *                reshuffled during the hand, bit 5 the moves follow the cards
+ *   seed         8 bytes little endian, only when the shoe was shuffled since the last hand
+ *   position     varint, cards dealt from the shoe before the hand
+ *   bet          varint
+ *   pot          varint, the players pot before the bet
+ *   net          zigzag varint, how much the players pot changed
+ *   player cards 1 byte count, then one byte per card code
+ *   dealer cards 1 byte count, then one byte per card code
+ *   moves        1 byte count, then the ordinal of each Table.Move made
+ * </pre>
+ * The first hand of every segment carries its seed, so each segment can be
+ * read on its own. A zero byte where the next hand would start, or the end
+ * of the file, ends the segment. The player cards are those of the first
+ * hand when the player split, the bet is the one placed before the deal and
+ * the net covers every hand. The moves are only written for hands where the
+ * player doubled or split. Otherwise every card past the first two was a
+ * hit, and the hand was stood on unless it went over 21 or its Outcome says
+ * it was surrendered.
+ * A log belongs to one table and is not thread safe.
+ */
+public final class HandLog implements Closeable{
+	public static final byte[] MAGIC = {'B', 'J', 'H', 'L'};
+	public static final int VERSION = 4;
+	public static final int HEADER = MAGIC.length + 1 + 8 + 8;
+	public static final int RECORD = 0x80;      //set in the flags of every hand
+	public static final int OUTCOME = 0x07;     //bits of the flags holding the Outcome
+	public static final int SEED = 0x08;        //a seed follows the flags
+	public static final int RESHUFFLED = 0x10;  //the shoe was reshuffled during the hand
+	public static final int MOVES = 0x20;       //the moves follow the cards
+	public static final int MAX_MOVES = Rules.MAX_MOVES; //most moves of any round, by any rules
+	private static final int MAX_CARDS = 32;    //no hand holds more cards than this
+	//no hand takes more room than this: flags, seed, four varints, two card lists and the moves
+	private static final int MAX_RECORD = 1 + 8 + 4 * 5 + 2 * (1 + MAX_CARDS) + 1 + MAX_MOVES;
+	private static final Table.Outcome[] OUTCOMES = Table.Outcome.values();
+	private static final Table.Move[] MOVE_VALUES = Table.Move.values();
+	private static final int MIN_SEGMENT = 4096;
+
+	private final Path dir;
+	private final int segmentBytes;  //size of every segment file
+	private final int flushEvery;    //hands between forcing pages to disk, 0 for never
+	private final Rules rules;        //rules of the table being logged
+	private FileChannel channel;      //the segment being written
+	private MappedByteBuffer out;
+	private int segment;             //number of the segment being written
+	private boolean seedWritten;     //whether the current segment has had a seed
+	private long lastSeed;           //the last seed written
+	private int unflushed;           //hands written since the last force
+	private long hands, bytes;       //written since the log was opened
+	private final byte[] record = new byte[MAX_RECORD]; //a hand is put together here, then copied in one go
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code Path}, {@code int}, {@code int}, {@code Rules}
+	 */
+	private HandLog(Path dir, int segmentBytes, int flushEvery, Rules rules){
+		this.dir = dir;
+		this.segmentBytes = segmentBytes;
+		this.flushEvery = flushEvery;
+		this.rules = rules;
+	}
+
+	/**
+	 * Static factory method, opens a log in the directory for hands played
+	 * at the given table, by its rules and from its shoe. Segments already in the directory are
+	 * kept and the log carries on after the last of them
+	 * @param {@code Path} -- directory, created if missing
+	 * @param {@code int} -- bytes in each segment, at least 4096
+	 * @param {@code int} -- hands between forcing the log to disk, 0 to only
+	 * force when a segment is full and on close
+	 * @param {@code Table} -- the table being logged
+	 * @return {@code HandLog}
+	 */
+	public static HandLog open(Path dir, int segmentBytes, int flushEvery, Table table) throws IOException{
+		if(segmentBytes < MIN_SEGMENT)
+			throw new IllegalArgumentException("Segments must be at least " + MIN_SEGMENT + " bytes: " + segmentBytes);
+		if(flushEvery < 0)
+			throw new IllegalArgumentException("flushEvery: " + flushEvery);
+		Files.createDirectories(dir);
+		HandLog log = new HandLog(dir, segmentBytes, flushEvery, table.getRules());
+		while(Files.exists(log.path(log.segment)))
+			log.segment++;
+		log.roll();
+		return log;
+	}
+
+	/**
+	 * The file of a segment
+	 * @param {@code int}
+	 * @return {@code Path}
+	 */
+	public Path path(int segment){
+		return segmentPath(dir, segment);
+	}
+
+	/**
+	 * The file of a segment in a log directory
+	 * @param {@code Path}, {@code int}
+	 * @return {@code Path}
+	 */
+	public static Path segmentPath(Path dir, int segment){
+		return dir.resolve(String.format("hands-%06d.log", segment));
+	}
+
+	/**
+	 * Appends one hand to the log
+	 * @param {@code long} -- seed of the shoe when the hand started
+	 * @param {@code int} -- cards dealt from the shoe before the hand
+	 * @param {@code boolean} -- whether the shoe was reshuffled during the hand
+	 * @param {@code int} -- bet, {@code int} -- the players pot before the bet
+	 * @param {@code int} -- change of the players pot
+	 * @param {@code Table.Outcome}, {@code Hand} -- player, {@code Hand} -- dealer
+	 * @param {@code byte[]} -- ordinals of the moves made, {@code int} -- how
+	 * many, 0 to leave the moves out
+	 */
+	public void record(long seed, int position, boolean reshuffled, int bet, int pot, int net,
+			Table.Outcome outcome, Hand player, Hand dealer, byte[] moves, int moveCount) throws IOException{
+		if(out.remaining() < MAX_RECORD)
+			roll();
+		boolean newSeed = !seedWritten || seed != lastSeed;
+		byte[] r = record;
+		int n = 0;
+		r[n++] = (byte) (RECORD | outcome.ordinal() | (newSeed ? SEED : 0) | (reshuffled ? RESHUFFLED : 0)
+			| (moveCount > 0 ? MOVES : 0));
+		if(newSeed){
+			for(int i = 0; i < 8; ++i)
+				r[n++] = (byte) (seed >>> (8 * i));
+			lastSeed = seed;
+			seedWritten = true;
+		}
+		n = putVarint(r, n, position);
+		n = putVarint(r, n, bet);
+		n = putVarint(r, n, pot);
+		n = putVarint(r, n, (net << 1) ^ (net >> 31));
+		n = putCards(r, n, player);
+		n = putCards(r, n, dealer);
+		if(moveCount > 0){
+			r[n++] = (byte) moveCount;
+			System.arraycopy(moves, 0, r, n, moveCount);
+			n += moveCount;
+		}
+		out.put(r, 0, n);
+		hands++;
+		bytes += n;
+		if(flushEvery > 0 && ++unflushed >= flushEvery){
+			out.force();
+			unflushed = 0;
+		}
+	}
+
+	/**
+	 * Writes an unsigned number 7 bits a byte, the lowest bits first
+	 * @param {@code byte[]}, {@code int} -- where to write, {@code int} -- the number
+	 * @return {@code int} -- where the next byte goes
+	 */
+	private static int putVarint(byte[] r, int n, int v){
+		while((v & ~0x7f) != 0){
+			r[n++] = (byte) (v | 0x80);
+			v >>>= 7;
+		}
+		r[n++] = (byte) v;
+		return n;
+	}
+
+	/**
+	 * Writes the number of cards in a hand and then the code of each
+	 * @param {@code byte[]}, {@code int} -- where to write, {@code Hand}
+	 * @return {@code int} -- where the next byte goes
+	 */
+	private static int putCards(byte[] r, int n, Hand hand){
+		int size = hand.size();
+		r[n++] = (byte) size;
+		for(int i = 0; i < size; ++i)
+			r[n++] = (byte) hand.cardAt(i).code();
+		return n;
+	}
+
+	//finishes the current segment, if any, and starts the next one
+	private void roll() throws IOException{
+		if(channel != null){
+			finish();
+			segment++;
+		}
+		channel = FileChannel.open(path(segment), StandardOpenOption.CREATE_NEW,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		out = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+		out.order(ByteOrder.LITTLE_ENDIAN);
+		out.put(MAGIC);
+		out.put((byte) VERSION);
+		out.putLong(rules.code());
+		out.putDouble(rules.penetration());
+		seedWritten = false;
+	}
+
+	//forces the segment to disk and cuts the file down to what was written
+	private void finish() throws IOException{
+		out.force();
+		unflushed = 0;
+		channel.truncate(out.position());
+		channel.close();
+	}
+
+	//Number of hands written since the log was opened
+	public long hands(){
+		return hands;
+	}
+
+	//Bytes of hands written since the log was opened, headers not included
+	public long bytes(){
+		return bytes;
+	}
+
+	//Number of the segment being written
+	public int segment(){
+		return segment;
+	}
+
+	//Forces the last hands to disk and closes the segment being written
+	@Override public void close() throws IOException{
+		if(channel != null && channel.isOpen())
+			finish();
+	}
+
+	/**
+	 * Reads the hands of one segment back, straight from a read only mapping
+	 * of the file. The reader is moved from hand to hand with {@code next()}
+	 * and the fields of the current hand are read through its accessors, no
+	 * objects are made per hand.
+	 * A reader is not thread safe, each thread should open its own.
+	 */
+	public static final class Reader{
+		private final Path path;
+		private final MappedByteBuffer in;
+		private final Rules rules;
+		private final byte[] player = new byte[MAX_CARDS], dealer = new byte[MAX_CARDS];
+		private final byte[] moves;
+		private int playerCount, dealerCount, moveCount;
+		private int flags, position, bet, pot, net, offset;
+		private long seed;
+		private boolean seedRead; //whether a seed has been read in this segment
+
+		private Reader(Path path, MappedByteBuffer in, Rules rules){
+			this.path = path;
+			this.in = in;
+			this.rules = rules;
+			moves = new byte[rules.maxMoves()];
+			in.position(HEADER);
+		}
+
+		/**
+		 * Static factory method, maps a segment file for reading
+		 * @param {@code Path}
+		 * @return {@code Reader}
+		 * @throws {@code IOException} if the file is not a segment of a hand log
+		 */
+		public static Reader open(Path path) throws IOException{
+			MappedByteBuffer in;
+			try(FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)){
+				in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+			}
+			if(in.limit() < HEADER)
+				throw new IOException("Not a hand log: " + path);
+			for(int i = 0; i < MAGIC.length; ++i)
+				if(in.get(i) != MAGIC[i])
+					throw new IOException("Not a hand log: " + path);
+			if(in.get(MAGIC.length) != VERSION)
+				throw new IOException("Unknown hand log version " + in.get(MAGIC.length) + ": " + path);
+			in.order(ByteOrder.LITTLE_ENDIAN);
+			Rules rules;
+			try{
+				rules = Rules.decode(in.getLong(MAGIC.length + 1), in.getDouble(MAGIC.length + 9));
+			} catch(IllegalArgumentException iae){
+				throw new IOException("Bad rules in the header of " + path, iae);
+			}
+			return new Reader(path, in, rules);
+		}
+
+		/**
+		 * Moves to the next hand
+		 * @return {@code boolean} -- false at the end of the segment
+		 * @throws {@code IOException} if the hand is cut short or malformed
+		 */
+		public boolean next() throws IOException{
+			if(!in.hasRemaining() || in.get(in.position()) == 0)
+				return false;
+			offset = in.position();
+			try{
+				flags = in.get() & 0xff;
+				if((flags & OUTCOME) >= OUTCOMES.length)
+					throw new IOException("Bad outcome at " + offset + " in " + path);
+				if((flags & SEED) != 0){
+					seed = in.getLong();
+					seedRead = true;
+				}
+				else if(!seedRead)
+					throw new IOException("Hand without a seed at " + offset + " in " + path);
+				position = getVarint();
+				bet = getVarint();
+				pot = getVarint();
+				int z = getVarint();
+				net = (z >>> 1) ^ -(z & 1);
+				playerCount = getCards(player);
+				dealerCount = getCards(dealer);
+				moveCount = 0;
+				if((flags & MOVES) != 0){
+					moveCount = in.get() & 0xff;
+					if(moveCount > moves.length)
+						throw new IOException("Too many moves at " + offset + " in " + path);
+					in.get(moves, 0, moveCount);
+					for(int i = 0; i < moveCount; ++i)
+						if(moves[i] < 0 || moves[i] >= MOVE_VALUES.length)
+							throw new IOException("Bad move at " + offset + " in " + path);
+				}
+			} catch(BufferUnderflowException bue){
+				throw new IOException("Hand cut short at " + offset + " in " + path);
+			}
+			return true;
+		}
+
+		//reads an unsigned number written 7 bits a byte
+		private int getVarint() throws IOException{
+			int v = 0;
+			for(int shift = 0; shift < 35; shift += 7){
+				int b = in.get();
+				v |= (b & 0x7f) << shift;
+				if(b >= 0)
+					return v;
+			}
+			throw new IOException("Bad number at " + offset + " in " + path);
+		}
+
+		//reads the cards of a hand into the array, returns how many there are
+		private int getCards(byte[] cards) throws IOException{
+			int n = in.get() & 0xff;
+			if(n > MAX_CARDS)
+				throw new IOException("Too many cards at " + offset + " in " + path);
+			in.get(cards, 0, n);
+			return n;
+		}
+
+		//The file being read
+		public Path path(){
+			return path;
+		}
+
+		//The rules the hands were played by, with the shoe they were dealt from
+		public Rules rules(){
+			return rules;
+		}
+
+		public int decks(){
+			return rules.decks();
+		}
+
+		public double penetration(){
+			return rules.penetration();
+		}
+
+		//Where the current hand starts in the file
+		public int offset(){
+			return offset;
+		}
+
+		//Seed of the shoe the current hand was dealt from
+		public long seed(){
+			return seed;
+		}
+
+		//Cards dealt from the shoe before the current hand
+		public int position(){
+			return position;
+		}
+
+		public int bet(){
+			return bet;
+		}
+
+		//The players pot before the bet
+		public int pot(){
+			return pot;
+		}
+
+		//How much the players pot changed
+		public int net(){
+			return net;
+		}
+
+		public Table.Outcome outcome(){
+			return OUTCOMES[flags & OUTCOME];
+		}
+
+		//Whether the shoe ran out and was reshuffled during the hand
+		public boolean reshuffled(){
+			return (flags & RESHUFFLED) != 0;
+		}
+
+		public int playerCards(){
+			return playerCount;
+		}
+
+		//Code of one of the players cards
+		public int playerCard(int i){
+			return player[i];
+		}
+
+		public int dealerCards(){
+			return dealerCount;
+		}
+
+		//Code of one of the dealers cards
+		public int dealerCard(int i){
+			return dealer[i];
+		}
+
+		//Number of moves written with the current hand, 0 when they were left out
+		public int moves(){
+			return moveCount;
+		}
+
+		//One of the moves of the current hand
+		public Table.Move move(int i){
+			return MOVE_VALUES[moves[i]];
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.HandLog [hands] [segment bytes]
+	 * Logs hands played by a bot into a temporary directory and reports
+	 * the speed and size of the log
+	 */
+	public static void main(String[] args) throws IOException{
+		long n = args.length > 0 ? Long.parseLong(args[0]) : 2000000;
+		int segmentBytes = args.length > 1 ? Integer.parseInt(args[1]) : 8 << 20;
+		Path dir = Files.createTempDirectory("hands");
+		Shoe shoe = Shoe.createShoe(6, 0.75);
+		Table t = Bot.botTable(10, shoe);
+		HandLog log = HandLog.open(dir, segmentBytes, 0, t);
+		t.setHistory(log);
+		long start = System.nanoTime();
+		for(long i = 0; i < n; ++i){
+			if(t.getPlayer().getPot() <= 0)
+				t.getPlayer().refreshPot();
+			t.playHand();
+		}
+		t.close();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d hands in %.2fs, %.0f hands/sec, %.1f bytes/hand, %d segments in %s",
+			log.hands(), seconds, log.hands() / seconds, (double) log.bytes() / log.hands(), log.segment() + 1, dir));
+	}
+}
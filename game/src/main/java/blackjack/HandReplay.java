@@ -0,0 +1,335 @@
+package blackjack;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Plays the hands of a HandLog again. Every hand is dealt once more from
+ * its recorded shoe, seed and position, at a headless table with the
+ * recorded rules, bet and moves, so it goes through the same rules and the
+ * same payouts in Player as when it was first played. Any hand that comes
+ * out with other cards, another outcome or another change of pot is
+ * reported as a mismatch.
+ *
+ * When an alternative strategy is given each hand is also played by it
+ * from the same shoe position, by the recorded rules or by alternative
+ * ones, and the difference in money won is reported as an EV delta. Segments are read through read only mappings
+ * and replayed in parallel, one segment per task.
+ */
+public final class HandReplay{
+	private static final int EXAMPLES = 10; //mismatches described in the report
+
+	private final List<Path> segments;                 //every segment to replay
+	private final int threads;                         //segments replayed at once
+	private final Callable<PlayerStrategy> alternative; //makes the strategy to compare with, or null
+	private final Rules rules;                         //rules the alternative plays by, null for the recorded ones
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code List<Path>}, {@code int}, {@code Callable<PlayerStrategy>}, {@code Rules}
+	 */
+	private HandReplay(List<Path> segments, int threads, Callable<PlayerStrategy> alternative, Rules rules){
+		this.segments = segments;
+		this.threads = threads;
+		this.alternative = alternative;
+		this.rules = rules;
+	}
+
+	//Static factory method, the alternative strategy plays by the recorded rules
+	public static HandReplay create(Path dir, int threads, Callable<PlayerStrategy> alternative) throws IOException{
+		return create(dir, threads, alternative, null);
+	}
+
+	/**
+	 * Static factory method, finds every segment under the directory
+	 * @param {@code Path} -- a log directory, or a directory holding several
+	 * @param {@code int} -- segments replayed at once
+	 * @param {@code Callable<PlayerStrategy>} -- makes a strategy for each
+	 * segment to compare with the recorded play, null to only verify
+	 * @param {@code Rules} -- the rules the alternative strategy plays by,
+	 * null for the recorded ones. The shoe is always the recorded one
+	 * @return {@code HandReplay}
+	 */
+	public static HandReplay create(Path dir, int threads, Callable<PlayerStrategy> alternative, Rules rules)
+			throws IOException{
+		if(threads < 1)
+			throw new IllegalArgumentException("threads: " + threads);
+		final List<Path> segments = new ArrayList<Path>();
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>(){
+			@Override public FileVisitResult visitFile(Path file, java.nio.file.attribute.BasicFileAttributes attrs){
+				String name = file.getFileName().toString();
+				if(name.startsWith("hands-") && name.endsWith(".log"))
+					segments.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(segments);
+		return new HandReplay(segments, threads, alternative, rules);
+	}
+
+	/**
+	 * Replays every segment
+	 * @return {@code Result} -- the results of all segments together
+	 */
+	public Result run() throws InterruptedException, ExecutionException{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			long start = System.nanoTime();
+			for(final Path p : segments)
+				futures.add(pool.submit(new Callable<Result>(){
+					public Result call() throws Exception{
+						return replay(p);
+					}
+				}));
+			Result total = new Result();
+			for(Future<Result> f : futures)
+				total.merge(f.get());
+			total.segments = segments.size();
+			total.nanos = System.nanoTime() - start;
+			return total;
+		} finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Replays one segment, with its own tables and shoes
+	 * @param {@code Path}
+	 * @return {@code Result}
+	 */
+	private Result replay(Path segment) throws Exception{
+		HandLog.Reader r = HandLog.Reader.open(segment);
+		Result result = new Result();
+		Scripted script = new Scripted();
+		Table recorded = Table.createTable(Player.joinGame(Hand.newHand(), 0), script,
+			Shoe.createShoe(r.decks(), r.penetration()), r.rules());
+		PlayerStrategy alt = alternative == null ? null : alternative.call();
+		Table other = alt == null ? null : Table.createTable(Player.joinGame(Hand.newHand(), 0), alt,
+			Shoe.createShoe(r.decks(), r.penetration()), rules == null ? r.rules() : rules);
+		while(r.next()){
+			result.hands++;
+			if(r.reshuffled()){
+				//the rest of the hand came from a shoe whose seed was not kept
+				result.skipped++;
+				continue;
+			}
+			script.load(r);
+			int net = play(recorded, script, r);
+			String problem = check(recorded, r, net);
+			if(problem != null){
+				result.mismatches++;
+				if(result.examples.size() < EXAMPLES)
+					result.examples.add(segment.getFileName() + "@" + r.offset() + ": " + problem);
+			}
+			result.recordedNet += r.net();
+			result.replayedNet += net;
+			result.bets += r.bet();
+			if(other != null)
+				result.alternativeNet += play(other, alt, r);
+		}
+		return result;
+	}
+
+	/**
+	 * Deals a recorded hand again at a table and plays it by the strategy,
+	 * starting from the pot the recorded player had
+	 * @param {@code Table}, {@code PlayerStrategy}, {@code HandLog.Reader}
+	 * @return {@code int} -- how much the players pot changed
+	 */
+	private static int play(Table table, PlayerStrategy strategy, HandLog.Reader r){
+		Shoe shoe = table.getDealer().viewShoe();
+		if(shoe.shuffleSeed() != r.seed())
+			shoe.shuffle(r.seed());
+		shoe.skipTo(r.position());
+		Player player = table.getPlayer();
+		//the pot the recorded player had, so a double or split is only made where they could afford it
+		int pot = r.pot();
+		player.refreshPot(pot);
+		if(table.beginHand(r.bet())){
+			Card up = table.getDealer().displayPlayerView();
+			while(table.applyMove(strategy.nextMove(table.currentHand(), up)))
+				;
+		}
+		return player.getPot() - pot;
+	}
+
+	/**
+	 * Compares a replayed hand with the record
+	 * @param {@code Table}, {@code HandLog.Reader}, {@code int} -- replayed change of pot
+	 * @return {@code String} -- what differs, null if nothing
+	 */
+	private static String check(Table table, HandLog.Reader r, int net){
+		Hand player = table.getPlayer().viewHand();
+		Hand dealer = table.getDealer().viewHand();
+		if(player.size() != r.playerCards() || dealer.size() != r.dealerCards())
+			return "cards dealt " + player.size() + "/" + dealer.size() + ", recorded " + r.playerCards() + "/" + r.dealerCards();
+		for(int i = 0; i < r.playerCards(); ++i)
+			if(player.cardAt(i).code() != r.playerCard(i))
+				return "player card " + i + " is " + player.cardAt(i) + ", recorded " + Card.valueOf(r.playerCard(i));
+		for(int i = 0; i < r.dealerCards(); ++i)
+			if(dealer.cardAt(i).code() != r.dealerCard(i))
+				return "dealer card " + i + " is " + dealer.cardAt(i) + ", recorded " + Card.valueOf(r.dealerCard(i));
+		if(table.lastOutcome() != r.outcome())
+			return "outcome " + table.lastOutcome() + ", recorded " + r.outcome();
+		if(net != r.net())
+			return "paid " + net + ", recorded " + r.net();
+		return null;
+	}
+
+	/**
+	 * Bets the recorded bet and plays the recorded moves, so it can play
+	 * a recorded hand through {@code playHand} as well as move by move.
+	 * Where the moves were not written, it hits until
+	 * the player has as many cards as were recorded and then stands, or
+	 * surrenders a surrendered hand
+	 */
+	private static final class Scripted implements PlayerStrategy{
+		private int bet;           //the bet of the current hand
+		private int hits;          //hits left in the current hand
+		private boolean surrender; //the current hand was surrendered
+		private final Table.Move[] moves = new Table.Move[HandLog.MAX_MOVES]; //the written moves
+		private int moveCount, next;
+
+		//takes the moves of the current hand of the reader
+		private void load(HandLog.Reader r){
+			bet = r.bet();
+			hits = r.playerCards() - 2;
+			surrender = r.outcome() == Table.Outcome.SURRENDER;
+			moveCount = r.moves();
+			next = 0;
+			for(int i = 0; i < moveCount; ++i)
+				moves[i] = r.move(i);
+		}
+
+		public int nextBet(int pot, CardCount count){
+			return bet;
+		}
+
+		public Table.Move nextMove(Hand hand, Card dealerCard){
+			if(moveCount > 0)
+				return next < moveCount ? moves[next++] : Table.Move.STAND;
+			if(surrender)
+				return Table.Move.SURRENDER;
+			if(hits > 0){
+				hits--;
+				return Table.Move.HIT;
+			}
+			return Table.Move.STAND;
+		}
+	}
+
+	/**
+	 * What replaying one or more segments found. The results of segments
+	 * replayed on different threads are merged once they are done
+	 */
+	public static final class Result{
+		private int segments;
+		private long hands, skipped, mismatches;
+		private long recordedNet, replayedNet, alternativeNet, bets;
+		private long nanos;
+		private final List<String> examples = new ArrayList<String>();
+
+		private Result(){
+		}
+
+		//adds the results of another segment
+		private void merge(Result r){
+			hands += r.hands;
+			skipped += r.skipped;
+			mismatches += r.mismatches;
+			recordedNet += r.recordedNet;
+			replayedNet += r.replayedNet;
+			alternativeNet += r.alternativeNet;
+			bets += r.bets;
+			for(String e : r.examples)
+				if(examples.size() < EXAMPLES)
+					examples.add(e);
+		}
+
+		public long hands(){
+			return hands;
+		}
+
+		//hands that could not be dealt again because the shoe ran out during them
+		public long skipped(){
+			return skipped;
+		}
+
+		public long mismatches(){
+			return mismatches;
+		}
+
+		//Descriptions of the first few mismatches
+		public List<String> examples(){
+			return Collections.unmodifiableList(examples);
+		}
+
+		//money won per unit bet, as recorded
+		public double recordedEv(){
+			return bets == 0 ? 0 : (double) recordedNet / bets;
+		}
+
+		//money won per unit bet by the alternative strategy on the same hands
+		public double alternativeEv(){
+			return bets == 0 ? 0 : (double) alternativeNet / bets;
+		}
+
+		@Override public String toString(){
+			StringBuilder sb = new StringBuilder();
+			long verified = hands - skipped;
+			sb.append(String.format("Replayed %d hands from %d segments in %.2fs, %.0f hands/sec%n",
+				hands, segments, nanos / 1e9, hands * 1e9 / Math.max(1, nanos)));
+			sb.append(String.format("Verified: %d  Skipped: %d  Mismatches: %d%n", verified, skipped, mismatches));
+			sb.append(String.format("Net recorded: %d  replayed: %d%n", recordedNet, replayedNet));
+			sb.append(String.format("EV per unit bet, recorded: %+.4f  alternative: %+.4f  delta: %+.4f",
+				recordedEv(), alternativeEv(), alternativeEv() - recordedEv()));
+			for(String e : examples)
+				sb.append("\n  ").append(e);
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.HandReplay [log directory] [threads] [h17|s17]
+	 * Without a directory, hands are first played by bots and logged into a
+	 * temporary one. The log is then replayed and compared with a player
+	 * that copies the dealer, hitting below 17, with the dealer hitting or
+	 * standing on soft 17 as asked, or as recorded
+	 */
+	public static void main(String[] args) throws Exception{
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		Path dir;
+		if(args.length > 0)
+			dir = Paths.get(args[0]);
+		else{
+			final Path logs = Files.createTempDirectory("hands");
+			Simulator.create(threads, 500000, 1, new Simulator.Tables(){
+				public Table create(int id, ShuffleSource source) throws IOException{
+					Shoe shoe = Shoe.createShoe(6, 0.75, source);
+					Table t = Bot.botTable(10, shoe);
+					t.setHistory(HandLog.open(logs.resolve("table-" + id), 4 << 20, 0, t));
+					return t;
+				}
+			}).run();
+			dir = logs;
+		}
+		Rules rules = args.length > 2 ? Rules.standard().withHitSoft17(!args[2].equalsIgnoreCase("s17")) : null;
+		HandReplay replay = HandReplay.create(dir, threads, new Callable<PlayerStrategy>(){
+			public PlayerStrategy call(){
+				return new PlayerStrategy(){
+					public int nextBet(int pot, CardCount count){
+						return 10;
+					}
+
+					public Table.Move nextMove(Hand hand, Card dealerCard){
+						return hand.bestValue() < 17 ? Table.Move.HIT : Table.Move.STAND;
+					}
+				};
+			}
+		}, rules);
+		System.out.println(replay.run());
+	}
+}
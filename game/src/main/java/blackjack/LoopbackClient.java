@@ -0,0 +1,79 @@
+package blackjack;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tries out a TableServer on this machine. Opens a number of sessions, each
+ * on its own virtual thread, and plays a fixed number of hands in each one
+ * by answering the servers prompts from a script: always bet the same
+ * amount, hit below 17 and stand otherwise. When every session is done the
+ * servers status is printed.
+ */
+public final class LoopbackClient{
+	private LoopbackClient(){
+	}
+
+	/**
+	 * Plays the given number of hands over one connection, then hangs up
+	 * @param {@code int} -- port of the server, {@code int} -- hands to play
+	 * @return {@code int} -- hands played
+	 */
+	static int play(int port, int hands) throws IOException{
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try{
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+			int played = 0;
+			int value = 0;
+			String line;
+			while((line = in.readLine()) != null){
+				if(line.startsWith("Hand Value: "))
+					value = Integer.parseInt(line.substring(12).trim());
+				else if(line.startsWith("Place your bet:")){
+					if(played == hands)
+						break;
+					out.println("10");
+				}
+				else if(line.startsWith("Please make a choice:"))
+					out.println(value < 17 ? "h" : "s");
+				else if(line.startsWith("Would you like to continue playing?"))
+					out.println("y");
+				else if(line.endsWith("You won!") || line.equals("You lost!") || line.equals("Push"))
+					played++;
+			}
+			return played;
+		} finally{
+			socket.close();
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.LoopbackClient [sessions] [hands per session]
+	 */
+	public static void main(String[] args) throws Exception{
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		final int hands = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		final TableServer server = TableServer.start(0, 60000, 6);
+		long start = System.nanoTime();
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+		for(int i = 0; i < sessions; ++i)
+			results.add(clients.submit(new Callable<Integer>(){
+				public Integer call() throws IOException{
+					return play(server.port(), hands);
+				}
+			}));
+		long played = 0;
+		for(Future<Integer> f : results)
+			played += f.get();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		clients.shutdown();
+		System.out.println(String.format("%d sessions played %d hands in %.2fs, %.0f hands/sec",
+			sessions, played, seconds, played / seconds));
+		System.out.println(server.metrics().snapshot());
+		server.close();
+	}
+}
@@ -0,0 +1,268 @@
+package blackjack;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for the game loop. Tables and dealers record into
+ * a Metrics only when one has been set on them, so a table without metrics
+ * pays for a null check and nothing else. One Metrics can be shared by any
+ * number of tables, every counter is a LongAdder, so tables on different
+ * threads do not fight over the same memory.
+ * A snapshot can be taken at any time and printed as text or JSON.
+ */
+public final class Metrics{
+	private final LongAdder hands = new LongAdder();
+	private final LongAdder rounds = new LongAdder();
+	private final LongAdder wins = new LongAdder();
+	private final LongAdder blackjacks = new LongAdder();
+	private final LongAdder losses = new LongAdder();
+	private final LongAdder pushes = new LongAdder();
+	private final LongAdder surrenders = new LongAdder();
+	private final LongAdder playerBusts = new LongAdder();
+	private final LongAdder dealerBusts = new LongAdder();
+	private final LongAdder cardsDealt = new LongAdder();
+	private final LongAdder reshuffles = new LongAdder();
+	private final Histogram roundNanos = new Histogram();    //time to play each round
+	private final Histogram cardsPerHand = new Histogram();  //cards dealt in each hand
+
+	//Records a hand that has been settled
+	public void handPlayed(Table.Outcome outcome, int cards){
+		hands.increment();
+		switch(outcome){
+			case WIN:
+				wins.increment();
+				break;
+			case BLACKJACK:
+				blackjacks.increment();
+				break;
+			case LOSS:
+				losses.increment();
+				break;
+			case PUSH:
+				pushes.increment();
+				break;
+			case SURRENDER:
+				surrenders.increment();
+				break;
+		}
+		cardsPerHand.record(cards);
+	}
+
+	/**
+	 * Records a round once every hand of it has been settled. The time is
+	 * taken once for the whole round, however many seats and splits it had
+	 * @param {@code long} -- nanoseconds the round took
+	 * @param {@code boolean} -- the dealer went over 21
+	 */
+	public void roundPlayed(long nanos, boolean dealerBust){
+		rounds.increment();
+		if(dealerBust)
+			dealerBusts.increment();
+		roundNanos.record(nanos);
+	}
+
+	//Records the player going over 21
+	public void playerBust(){
+		playerBusts.increment();
+	}
+
+	//Records a card dealt from the shoe
+	public void cardDealt(){
+		cardsDealt.increment();
+	}
+
+	//Records a number of cards dealt from the shoe at once
+	public void cardsDealt(int n){
+		cardsDealt.add(n);
+	}
+
+	//Records the shoe being reshuffled
+	public void reshuffled(){
+		reshuffles.increment();
+	}
+
+	/**
+	 * Takes a snapshot of every counter and histogram. Hands that are being
+	 * played while the snapshot is taken may be only partly included
+	 * @return {@code Snapshot}
+	 */
+	public Snapshot snapshot(){
+		return new Snapshot(this);
+	}
+
+	/**
+	 * A histogram of non negative values with buckets in the style of
+	 * HdrHistogram, each power of two is split into eight linear buckets,
+	 * so a recorded value is off by at most one eighth
+	 */
+	public static final class Histogram{
+		private static final int SUB_BITS = 3;
+		private static final int SUB_COUNT = 1 << SUB_BITS;
+		static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+		private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+		public Histogram(){
+			for(int i = 0; i < BUCKETS; ++i)
+				counts[i] = new LongAdder();
+		}
+
+		//Adds one value to the histogram, negative values count as 0
+		public void record(long value){
+			counts[bucket(Math.max(0, value))].increment();
+		}
+
+		//The bucket a value falls in
+		static int bucket(long value){
+			if(value < SUB_COUNT)
+				return (int) value;
+			int exp = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+			return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+		}
+
+		//The smallest value that falls in a bucket
+		static long lowest(int bucket){
+			if(bucket < SUB_COUNT)
+				return bucket;
+			int exp = bucket / SUB_COUNT + SUB_BITS - 1;
+			return (long) (SUB_COUNT + bucket % SUB_COUNT) << (exp - SUB_BITS);
+		}
+
+		//Copies the counts of every bucket
+		long[] counts(){
+			long[] c = new long[BUCKETS];
+			for(int i = 0; i < BUCKETS; ++i)
+				c[i] = counts[i].sum();
+			return c;
+		}
+	}
+
+	/**
+	 * The values of a Metrics at one point in time
+	 * @Immutable
+	 */
+	public static final class Snapshot{
+		private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+		private final long hands, rounds, wins, blackjacks, losses, pushes, surrenders;
+		private final long playerBusts, dealerBusts, cardsDealt, reshuffles;
+		private final long[] roundNanos, cardsPerHand;
+
+		private Snapshot(Metrics m){
+			hands = m.hands.sum();
+			rounds = m.rounds.sum();
+			wins = m.wins.sum();
+			blackjacks = m.blackjacks.sum();
+			losses = m.losses.sum();
+			pushes = m.pushes.sum();
+			surrenders = m.surrenders.sum();
+			playerBusts = m.playerBusts.sum();
+			dealerBusts = m.dealerBusts.sum();
+			cardsDealt = m.cardsDealt.sum();
+			reshuffles = m.reshuffles.sum();
+			roundNanos = m.roundNanos.counts();
+			cardsPerHand = m.cardsPerHand.counts();
+		}
+
+		public long hands(){
+			return hands;
+		}
+
+		public long rounds(){
+			return rounds;
+		}
+
+		public long cardsDealt(){
+			return cardsDealt;
+		}
+
+		public long reshuffles(){
+			return reshuffles;
+		}
+
+		//the part of all hands that ended a given way
+		private double rate(long n){
+			return hands == 0 ? 0 : (double) n / hands;
+		}
+
+		/**
+		 * A percentile of the round latency histogram, as the lowest value of
+		 * the bucket it falls in
+		 * @param {@code double} -- between 0 and 100
+		 * @return {@code long} -- nanoseconds
+		 */
+		public long roundNanos(double percentile){
+			return percentile(roundNanos, percentile);
+		}
+
+		//a percentile of a histograms counts
+		static long percentile(long[] counts, double percentile){
+			long total = 0;
+			for(long c : counts)
+				total += c;
+			long rank = (long) Math.ceil(total * percentile / 100);
+			long seen = 0;
+			for(int i = 0; i < counts.length; ++i){
+				seen += counts[i];
+				if(seen >= rank && seen > 0)
+					return Histogram.lowest(i);
+			}
+			return 0;
+		}
+
+		//mean of a histogram, using the lowest value of each bucket
+		static double mean(long[] counts){
+			long total = 0;
+			double sum = 0;
+			for(int i = 0; i < counts.length; ++i){
+				total += counts[i];
+				sum += (double) counts[i] * Histogram.lowest(i);
+			}
+			return total == 0 ? 0 : sum / total;
+		}
+
+		/**
+		 * The snapshot as a single JSON object
+		 * @return {@code String}
+		 */
+		public String toJson(){
+			StringBuilder sb = new StringBuilder("{");
+			sb.append("\"hands\":").append(hands);
+			sb.append(",\"rounds\":").append(rounds);
+			sb.append(",\"wins\":").append(wins);
+			sb.append(",\"blackjacks\":").append(blackjacks);
+			sb.append(",\"losses\":").append(losses);
+			sb.append(",\"pushes\":").append(pushes);
+			sb.append(",\"surrenders\":").append(surrenders);
+			sb.append(",\"playerBusts\":").append(playerBusts);
+			sb.append(",\"dealerBusts\":").append(dealerBusts);
+			sb.append(",\"cardsDealt\":").append(cardsDealt);
+			sb.append(",\"reshuffles\":").append(reshuffles);
+			sb.append(",\"cardsPerHand\":{\"mean\":").append(mean(cardsPerHand));
+			sb.append(",\"max\":").append(percentile(cardsPerHand, 100)).append("}");
+			sb.append(",\"roundNanos\":{");
+			for(double p : PERCENTILES)
+				sb.append("\"p").append(p).append("\":").append(roundNanos(p)).append(",");
+			sb.append("\"max\":").append(roundNanos(100)).append("}}");
+			return sb.toString();
+		}
+
+		@Override public String toString(){
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("Hands: %d  Rounds: %d%n", hands, rounds));
+			sb.append(String.format("Won: %d (%.2f%%)  Blackjack: %d (%.2f%%)  Lost: %d (%.2f%%)  Push: %d (%.2f%%)  Surrender: %d (%.2f%%)%n",
+				wins, 100 * rate(wins), blackjacks, 100 * rate(blackjacks),
+				losses, 100 * rate(losses), pushes, 100 * rate(pushes), surrenders, 100 * rate(surrenders)));
+			sb.append(String.format("Player busts: %.2f%% of hands  Dealer busts: %.2f%% of rounds%n",
+				100 * rate(playerBusts), rounds == 0 ? 0 : 100.0 * dealerBusts / rounds));
+			sb.append(String.format("Cards dealt: %d  Cards per hand: %.2f  Reshuffles: %d%n",
+				cardsDealt, mean(cardsPerHand), reshuffles));
+			sb.append("Round latency (ns):");
+			for(double p : PERCENTILES)
+				sb.append(" p").append(p).append("=").append(roundNanos(p));
+			sb.append(" max=").append(roundNanos(100));
+			return sb.toString();
+		}
+	}
+}
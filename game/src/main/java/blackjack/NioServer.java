@@ -0,0 +1,528 @@
+package blackjack;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A non blocking front end for remote players. A few event loop threads,
+ * each with its own Selector, serve every connection, so an idle player
+ * costs a table and two small buffers rather than a thread.
+ *
+ * The protocol is one command per line, upper or lower case:
+ * BET n, HIT, STAND, DOUBLE, SPLIT, SURRENDER and QUIT.
+ * The server answers with one line per game event,
+ * TYPE seat card value, where TYPE is a GameEvent type, seat is 0 for the
+ * player and -1 for the dealer, card is a card code or -1. After every
+ * command the server says what it is waiting for,
+ * READY BET pot or READY MOVE total, or ERR reason when the command could
+ * not be used, ERR MOVE NOT ALLOWED for a double, split or surrender the
+ * hand may not make, which leaves the hand as it was. Commands are decoded straight from the read buffer and
+ * answers are encoded straight into the write buffer, no Strings are made.
+ */
+public final class NioServer implements AutoCloseable{
+	private static final int READ_BUFFER = 256;
+	private static final int WRITE_BUFFER = 1024;
+	private static final int MAX_WRITE_BUFFER = 64 * 1024; //a client that reads slower than this is dropped
+
+	private static final byte[] BET = bytes("BET");
+	private static final byte[] HIT = bytes("HIT");
+	private static final byte[] STAND = bytes("STAND");
+	private static final byte[] DOUBLE = bytes("DOUBLE");
+	private static final byte[] SPLIT = bytes("SPLIT");
+	private static final byte[] SURRENDER = bytes("SURRENDER");
+	private static final byte[] QUIT = bytes("QUIT");
+	private static final byte[] READY_BET = bytes("READY BET ");
+	private static final byte[] READY_MOVE = bytes("READY MOVE ");
+	private static final byte[] ERR_COMMAND = bytes("ERR UNKNOWN COMMAND\n");
+	private static final byte[] ERR_STATE = bytes("ERR NOT NOW\n");
+	private static final byte[] ERR_MOVE = bytes("ERR MOVE NOT ALLOWED\n");
+	private static final byte[] ERR_BET = bytes("ERR BAD BET\n");
+	private static final byte[] ERR_POT = bytes("ERR POT EMPTY\n");
+	private static final byte[] ERR_LONG = bytes("ERR LINE TOO LONG\n");
+	private static final byte[][] TYPES = new byte[GameEvent.Type.values().length][];
+	static{
+		for(GameEvent.Type t : GameEvent.Type.values())
+			TYPES[t.ordinal()] = bytes(t.name() + " ");
+	}
+
+	private final ServerSocketChannel server;
+	private final EventLoop[] loops;
+	private final int decks;
+	private final AtomicInteger connections = new AtomicInteger();
+	private final Metrics metrics = new Metrics();
+	private int nextLoop; //only used by the loop accepting connections
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code ServerSocketChannel}, {@code int}, {@code int}
+	 */
+	private NioServer(ServerSocketChannel server, int loops, int decks) throws IOException{
+		this.server = server;
+		this.decks = decks;
+		this.loops = new EventLoop[loops];
+		for(int i = 0; i < loops; ++i)
+			this.loops[i] = new EventLoop(i);
+	}
+
+	/**
+	 * Static factory method, starts the event loops and begins accepting
+	 * connections on the loopback address
+	 * @param {@code int} -- port, 0 picks a free one
+	 * @param {@code int} -- number of event loop threads
+	 * @param {@code int} -- decks in each tables shoe
+	 * @return {@code NioServer}
+	 */
+	public static NioServer start(int port, int loops, int decks) throws IOException{
+		ServerSocketChannel ch = ServerSocketChannel.open();
+		ch.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+		ch.configureBlocking(false);
+		NioServer s = new NioServer(ch, loops, decks);
+		ch.register(s.loops[0].selector, SelectionKey.OP_ACCEPT);
+		for(EventLoop l : s.loops)
+			l.thread.start();
+		return s;
+	}
+
+	//The port the server is listening on
+	public int port() throws IOException{
+		return ((InetSocketAddress) server.getLocalAddress()).getPort();
+	}
+
+	//Number of connections open right now
+	public int connections(){
+		return connections.get();
+	}
+
+	//Counters for every table the server has hosted
+	public Metrics metrics(){
+		return metrics;
+	}
+
+	//Stops every event loop and closes every connection
+	@Override public void close() throws IOException{
+		server.close();
+		for(EventLoop l : loops){
+			l.thread.interrupt();
+			l.selector.wakeup();
+		}
+	}
+
+	//the ASCII bytes of a String, only used for constants
+	private static byte[] bytes(String s){
+		try{
+			return s.getBytes("US-ASCII");
+		} catch(UnsupportedEncodingException uee){
+			throw new AssertionError(uee);
+		}
+	}
+
+	/**
+	 * One selector and the thread that runs it. Connections are handed to
+	 * a loop through a queue and registered by the loops own thread
+	 */
+	private final class EventLoop implements Runnable{
+		private final Selector selector;
+		private final Thread thread;
+		private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<SocketChannel>();
+
+		private EventLoop(int id) throws IOException{
+			selector = Selector.open();
+			thread = new Thread(this, "nio-loop-" + id);
+			thread.setDaemon(true);
+		}
+
+		//hands a new connection to this loop
+		private void add(SocketChannel ch){
+			pending.add(ch);
+			selector.wakeup();
+		}
+
+		public void run(){
+			try{
+				while(!Thread.currentThread().isInterrupted()){
+					selector.select();
+					SocketChannel ch;
+					while((ch = pending.poll()) != null)
+						register(ch);
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while(keys.hasNext()){
+						SelectionKey key = keys.next();
+						keys.remove();
+						if(!key.isValid())
+							continue;
+						if(key.isAcceptable())
+							accept();
+						else
+							((Connection) key.attachment()).ready(key);
+					}
+				}
+			} catch(IOException ioe){
+				//the selector failed, nothing more can be served by this loop
+			} finally{
+				for(SelectionKey key : selector.keys())
+					if(key.attachment() instanceof Connection)
+						((Connection) key.attachment()).disconnect();
+				try{
+					selector.close();
+				} catch(IOException ioe){
+					//closing anyway
+				}
+			}
+		}
+
+		//accepts every waiting connection and spreads them over the loops
+		private void accept() throws IOException{
+			SocketChannel ch;
+			while((ch = server.accept()) != null){
+				ch.configureBlocking(false);
+				ch.setOption(StandardSocketOptions.TCP_NODELAY, true); //answers are small and must not wait
+				loops[nextLoop++ % loops.length].add(ch);
+			}
+		}
+
+		//starts a table for a new connection
+		private void register(SocketChannel ch){
+			try{
+				Connection c = new Connection(ch);
+				c.key = ch.register(selector, SelectionKey.OP_READ, c);
+				connections.incrementAndGet();
+				c.ready();
+				c.flush();
+			} catch(IOException ioe){
+				try{
+					ch.close();
+				} catch(IOException e){
+					//closing anyway
+				}
+			}
+		}
+	}
+
+	/**
+	 * One remote player, the table they play at and the buffers of the
+	 * connection. Only touched by the thread of the loop it belongs to
+	 */
+	private final class Connection implements GameListener{
+		private final SocketChannel channel;
+		private final Table table;
+		private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+		private ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER);
+		private SelectionKey key;
+		private boolean moving; //true while the player has to move, false while waiting for a bet
+		private boolean closed;
+
+		private Connection(SocketChannel channel){
+			this.channel = channel;
+			table = Table.createTable(Player.joinGame(Hand.newHand(), 500), (Scanner) null, this, Shoe.createShoe(decks, 0.75));
+			table.setMetrics(metrics);
+		}
+
+		//handles a key the selector found ready
+		private void ready(SelectionKey key){
+			try{
+				if(key.isReadable())
+					read();
+				if(!closed && key.isValid() && key.isWritable())
+					flush();
+			} catch(IOException ioe){
+				disconnect();
+			}
+		}
+
+		//reads what has arrived and runs every complete line
+		private void read() throws IOException{
+			int n = channel.read(in);
+			if(n < 0){
+				disconnect();
+				return;
+			}
+			in.flip();
+			int start = in.position();
+			for(int i = start; i < in.limit() && !closed; ++i)
+				if(in.get(i) == '\n'){
+					int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+					command(start, end);
+					start = i + 1;
+				}
+			in.position(start);
+			in.compact();
+			if(!in.hasRemaining()){
+				in.clear();
+				write(ERR_LONG);
+			}
+			if(!closed)
+				flush();
+		}
+
+		/**
+		 * Runs one command, the bytes of the read buffer from start to end
+		 * @param {@code int}, {@code int}
+		 */
+		private void command(int start, int end){
+			if(is(start, end, QUIT)){
+				flush();
+				disconnect();
+				return;
+			}
+			if(startsWith(start, end, BET) && end > start + BET.length && in.get(start + BET.length) == ' '){
+				if(moving){
+					write(ERR_STATE);
+					return;
+				}
+				int bet = number(start + BET.length + 1, end);
+				if(bet <= 0){
+					write(ERR_BET);
+					return;
+				}
+				if(table.getPlayer().getPot() <= 0){
+					write(ERR_POT);
+					return;
+				}
+				moving = table.beginHand(bet);
+			}
+			else if(is(start, end, HIT))
+				move(Table.Move.HIT);
+			else if(is(start, end, STAND))
+				move(Table.Move.STAND);
+			else if(is(start, end, DOUBLE))
+				move(Table.Move.DOUBLE);
+			else if(is(start, end, SPLIT))
+				move(Table.Move.SPLIT);
+			else if(is(start, end, SURRENDER))
+				move(Table.Move.SURRENDER);
+			else{
+				write(ERR_COMMAND);
+				return;
+			}
+			ready();
+		}
+
+		//makes a move, if a hand is being played and the table allows it
+		private void move(Table.Move m){
+			if(!moving){
+				write(ERR_STATE);
+				return;
+			}
+			if(!allowed(m)){
+				write(ERR_MOVE);
+				return;
+			}
+			moving = table.applyMove(m);
+		}
+
+		//whether the hand being played may make the move, the table ignores a move it may not
+		private boolean allowed(Table.Move m){
+			switch(m){
+				case DOUBLE:
+					return table.canDouble();
+				case SPLIT:
+					return table.canSplit();
+				case SURRENDER:
+					return table.canSurrender();
+				default:
+					return true;
+			}
+		}
+
+		//tells the client what the server is waiting for
+		private void ready(){
+			if(moving){
+				write(READY_MOVE);
+				number(table.currentHand().bestValue());
+			}
+			else{
+				write(READY_BET);
+				number(table.getPlayer().getPot());
+			}
+			write((byte) '\n');
+		}
+
+		//whether the line is the word, ignoring case
+		private boolean is(int start, int end, byte[] word){
+			return end - start == word.length && startsWith(start, end, word);
+		}
+
+		//whether the line starts with the word, ignoring case
+		private boolean startsWith(int start, int end, byte[] word){
+			if(end - start < word.length)
+				return false;
+			for(int i = 0; i < word.length; ++i)
+				if((in.get(start + i) & ~0x20) != word[i])
+					return false;
+			return true;
+		}
+
+		//parses a positive number, -1 if the bytes are not one
+		private int number(int start, int end){
+			if(start == end || end - start > 9)
+				return -1;
+			int n = 0;
+			for(int i = start; i < end; ++i){
+				int d = in.get(i) - '0';
+				if(d < 0 || d > 9)
+					return -1;
+				n = n * 10 + d;
+			}
+			return n;
+		}
+
+		//encodes an event as a line of the protocol
+		public void onEvent(GameEvent e){
+			if(e.type() == GameEvent.Type.PROMPT)
+				return;
+			write(TYPES[e.type().ordinal()]);
+			number(e.seat());
+			write((byte) ' ');
+			number(e.card());
+			write((byte) ' ');
+			number(e.value());
+			write((byte) '\n');
+		}
+
+		//writes a number in decimal into the write buffer
+		private void number(int n){
+			if(n < 0){
+				write((byte) '-');
+				n = -n;
+			}
+			int div = 1;
+			while(n / div >= 10)
+				div *= 10;
+			for(; div > 0; div /= 10)
+				write((byte) ('0' + n / div % 10));
+		}
+
+		private void write(byte[] b){
+			room(b.length);
+			out.put(b);
+		}
+
+		private void write(byte b){
+			room(1);
+			out.put(b);
+		}
+
+		//makes sure the write buffer has room, growing it if needed
+		private void room(int n){
+			if(out.remaining() >= n)
+				return;
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + n));
+			out.flip();
+			bigger.put(out);
+			out = bigger;
+		}
+
+		//sends what it can, and waits to be writable if anything is left
+		private void flush(){
+			try{
+				out.flip();
+				channel.write(out);
+				boolean left = out.hasRemaining();
+				out.compact();
+				if(out.position() > MAX_WRITE_BUFFER)
+					disconnect();
+				else if(left)
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				else
+					key.interestOps(SelectionKey.OP_READ);
+			} catch(IOException ioe){
+				disconnect();
+			}
+		}
+
+		private void disconnect(){
+			if(closed)
+				return;
+			closed = true;
+			connections.decrementAndGet();
+			if(key != null)
+				key.cancel();
+			try{
+				channel.close();
+			} catch(IOException ioe){
+				//closing anyway
+			}
+		}
+	}
+
+	/**
+	 * Plays hands over a blocking connection, betting 10, hitting below 17
+	 * and standing otherwise, until the hands are played or the pot is empty
+	 * @param {@code int} -- port, {@code int} -- hands to play
+	 * @return {@code int} -- hands played
+	 */
+	static int play(int port, int hands) throws IOException{
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		try{
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), "US-ASCII"));
+			int played = 0;
+			String line;
+			while((line = in.readLine()) != null){
+				if(line.startsWith("READY BET")){
+					if(played == hands || line.equals("READY BET 0")){
+						out.write("QUIT\n");
+						out.flush();
+						break;
+					}
+					out.write("BET 10\n");
+				}
+				else if(line.startsWith("READY MOVE"))
+					out.write(Integer.parseInt(line.substring(11)) < 17 ? "HIT\n" : "STAND\n");
+				else if(line.startsWith("WIN") || line.startsWith("BLACKJACK") || line.startsWith("LOSE") || line.startsWith("PUSH"))
+					played++;
+				else if(line.startsWith("ERR"))
+					throw new IOException(line);
+				if(line.startsWith("READY"))
+					out.flush();
+			}
+			return played;
+		} finally{
+			socket.close();
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.NioServer [playing connections] [hands each] [idle connections] [event loops]
+	 * Starts a server and plays against it over loopback, with extra
+	 * connections that stay open without sending anything
+	 */
+	public static void main(String[] args) throws Exception{
+		int players = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		final int hands = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int idle = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+		int loops = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		final NioServer server = NioServer.start(0, loops, 6);
+		final int port = server.port();
+		List<Socket> idlers = new ArrayList<Socket>();
+		for(int i = 0; i < idle; ++i)
+			idlers.add(new Socket(InetAddress.getLoopbackAddress(), port));
+		long start = System.nanoTime();
+		ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for(int i = 0; i < players; ++i)
+			results.add(clients.submit(new Callable<Integer>(){
+				public Integer call() throws IOException{
+					return play(port, hands);
+				}
+			}));
+		long played = 0;
+		for(Future<Integer> f : results)
+			played += f.get();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d connections (%d idle) on %d loops, %d hands in %.2fs, %.0f hands/sec",
+			players + idle, idle, loops, played, seconds, played / seconds));
+		System.out.println("Open connections: " + server.connections());
+		System.out.println(server.metrics().snapshot());
+		for(Socket s : idlers)
+			s.close();
+		clients.shutdown();
+		server.close();
+	}
+}
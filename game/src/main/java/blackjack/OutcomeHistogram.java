@@ -0,0 +1,132 @@
+package blackjack;
+
+/**
+ * Counts how hands were settled, in flat long arrays: hands and money won by
+ * the players final total, the dealers total and the outcome, and hands by
+ * the number of cards in them. A histogram is filled by one table on one
+ * thread, recording a hand is a few array increments and never allocates,
+ * and the histograms of many tables are added together with {@code merge}
+ * once their threads are done.
+ *
+ * Totals over 21 are all kept as BUST. The dealers total is the one the
+ * dealers hand had when the players hand was settled, so a hand that busted
+ * or surrendered, or a blackjack, is kept against the dealers first two cards.
+ */
+public final class OutcomeHistogram{
+	public static final int BUST = 22;                  //index of every total over 21
+	private static final int TOTALS = BUST + 1;
+	private static final int OUTCOMES = Table.Outcome.values().length;
+	private static final int CELLS = TOTALS * TOTALS * OUTCOMES;
+	public static final int MAX_CARDS = 21;            //hands with more cards are counted here
+
+	private final long[] hands = new long[CELLS];       //hands by player total, dealer total and outcome
+	private final long[] net = new long[CELLS];         //money won, negative when lost, by the same
+	private final long[] cards = new long[MAX_CARDS + 1]; //hands by the number of cards in them
+	private long wagered;                               //every bet settled, after doubles and splits
+
+	public OutcomeHistogram(){
+	}
+
+	//The cell of a player total, dealer total and outcome
+	private static int cell(int player, int dealer, Table.Outcome outcome){
+		return (Math.min(player, BUST) * TOTALS + Math.min(dealer, BUST)) * OUTCOMES + outcome.ordinal();
+	}
+
+	/**
+	 * Adds a settled hand
+	 * @param {@code int} -- players total, {@code int} -- dealers total, {@code Table.Outcome}
+	 * @param {@code int} -- the bet on the hand, {@code int} -- money won, negative when lost
+	 * @param {@code int} -- cards in the players hand
+	 */
+	public void record(int player, int dealer, Table.Outcome outcome, int bet, int won, int cardCount){
+		int c = cell(player, dealer, outcome);
+		hands[c]++;
+		net[c] += won;
+		cards[Math.min(cardCount, MAX_CARDS)]++;
+		wagered += bet;
+	}
+
+	/**
+	 * Adds the counts of another histogram into this one. The other
+	 * histogram must not be changing while it is merged
+	 * @param {@code OutcomeHistogram}
+	 */
+	public void merge(OutcomeHistogram other){
+		for(int i = 0; i < CELLS; ++i){
+			hands[i] += other.hands[i];
+			net[i] += other.net[i];
+		}
+		for(int i = 0; i <= MAX_CARDS; ++i)
+			cards[i] += other.cards[i];
+		wagered += other.wagered;
+	}
+
+	//Hands settled with the given totals and outcome
+	public long hands(int player, int dealer, Table.Outcome outcome){
+		return hands[cell(player, dealer, outcome)];
+	}
+
+	//Money won on hands settled with the given totals and outcome
+	public long net(int player, int dealer, Table.Outcome outcome){
+		return net[cell(player, dealer, outcome)];
+	}
+
+	//Hands settled with the given number of cards, MAX_CARDS counts every larger hand
+	public long hands(int cardCount){
+		return cards[Math.min(cardCount, MAX_CARDS)];
+	}
+
+	//Every hand settled
+	public long hands(){
+		long n = 0;
+		for(long h : cards)
+			n += h;
+		return n;
+	}
+
+	//Money won over every hand, negative when lost
+	public long net(){
+		long n = 0;
+		for(long w : net)
+			n += w;
+		return n;
+	}
+
+	//Every bet settled, counting the extra money of doubles and splits
+	public long wagered(){
+		return wagered;
+	}
+
+	//Hands and money won by the players final total, over every dealer total and outcome
+	private long[] byPlayer(long[] values){
+		long[] sums = new long[TOTALS];
+		for(int i = 0; i < CELLS; ++i)
+			sums[i / (TOTALS * OUTCOMES)] += values[i];
+		return sums;
+	}
+
+	/**
+	 * The players final totals with the hands and the money won per hand
+	 * on each, the cards per hand and the return on the money wagered
+	 * @return {@code String}
+	 */
+	@Override public String toString(){
+		StringBuilder sb = new StringBuilder();
+		long n = hands();
+		long[] h = byPlayer(hands), w = byPlayer(net);
+		sb.append("Total      Hands      Share   Net/hand\n");
+		for(int t = 0; t < TOTALS; ++t){
+			if(h[t] == 0)
+				continue;
+			sb.append(String.format("%-6s %11d %9.2f%% %+10.3f%n", t == BUST ? "Bust" : Integer.toString(t),
+				h[t], 100.0 * h[t] / n, (double) w[t] / h[t]));
+		}
+		sb.append("Cards per hand:");
+		for(int c = 0; c <= MAX_CARDS; ++c)
+			if(cards[c] > 0)
+				sb.append(String.format(" %d%s=%.2f%%", c, c == MAX_CARDS ? "+" : "", 100.0 * cards[c] / n));
+		sb.append(String.format("%nHands: %d  Wagered: %d  Net: %d  Return: %+.3f%%",
+			n, wagered, net(), wagered == 0 ? 0.0 : 100.0 * net() / wagered));
+		return sb.toString();
+	}
+}
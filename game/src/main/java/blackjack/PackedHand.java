@@ -0,0 +1,217 @@
+package blackjack;
+
+/**
+ * A hand of cards packed into a single long, for code that plays or looks up
+ * millions of hands and wants each one to be a few words rather than a list
+ * of objects. From the lowest bit up the long holds
+ * 5 bits    how many aces
+ * 48 bits   how many cards of each other rank, four bits per rank, two first
+ * 6 bits    the hard total, every ace counted as one
+ * 5 bits    the number of cards
+ *
+ * A card is added by adding the long made for its code when the class is
+ * loaded, which bumps its rank, the hard total and the card count at once.
+ * The best total comes from a table indexed by the hard total and the number
+ * of aces, and blackjack, pair and soft checks are a few masks and compares.
+ * The packed value of an empty hand is 0, and the rank counts alone, see
+ * {@code ranks}, make a key for the cards held whatever order they came in.
+ *
+ * The fields hold up to 31 aces, 15 of any other rank, a hard total of 63
+ * and 31 cards. Adding a card to a hand with a hard total of at most 29
+ * keeps every field in range, such a hand holds at most 29 aces and 14 of
+ * any other rank. Any hand that stops drawing once it passes 21 stays well
+ * inside that, even with 21 aces from an eight deck shoe, so {@code add}
+ * does not check. Code that may keep adding to a bust hand asks
+ * {@code hasRoom} first, as Hand does.
+ */
+public final class PackedHand{
+	private static final int RANKS = 13;
+	private static final int ACE_BITS = 5;
+	private static final int HARD_SHIFT = ACE_BITS + 4 * (RANKS - 1), COUNT_SHIFT = HARD_SHIFT + 6;
+	private static final long RANK_MASK = (1L << HARD_SHIFT) - 1;
+	private static final int MAX_HARD = 29;      //most a hand may hold and still take a card, see hasRoom
+	private static final long TWOS;              //the 2 bit of every rank count
+
+	private static final long[] CARD = new long[Card.DECK_SIZE]; //what adding each card code adds
+	private static final byte[] BEST = new byte[64 << ACE_BITS]; //best total by hard total and aces
+
+	static{
+		long twos = 2;
+		for(int rank = 1; rank < RANKS; ++rank)
+			twos |= 2L << shift(rank);
+		TWOS = twos;
+		for(int code = 0; code < Card.DECK_SIZE; ++code)
+			CARD[code] = 1L << shift(Card.rankOf(code))
+				| (long) Card.cardValue(code) << HARD_SHIFT
+				| 1L << COUNT_SHIFT;
+		for(int hard = 0; hard < 64; ++hard)
+			for(int aces = 0; aces < 1 << ACE_BITS; ++aces)
+				BEST[hard << ACE_BITS | aces] = (byte) (aces > 0 && hard <= 11 ? hard + 10 : hard);
+	}
+
+	//The lowest bit of the count of a rank
+	private static int shift(int rank){
+		return rank == 0 ? 0 : ACE_BITS + 4 * (rank - 1);
+	}
+
+	private PackedHand(){
+	}
+
+	/**
+	 * The hand with one more card. The hand must have room for it, see
+	 * {@code hasRoom}, or the fields run into each other
+	 * @param {@code long} -- the hand, {@code int} -- card code
+	 * @return {@code long}
+	 */
+	public static long add(long hand, int code){
+		return hand + CARD[code];
+	}
+
+	//Whether any card can be added to the hand with every field staying in range
+	public static boolean hasRoom(long hand){
+		return hardTotal(hand) <= MAX_HARD;
+	}
+
+	/**
+	 * The hand with one card taken out, the card must be in the hand
+	 * @param {@code long} -- the hand, {@code int} -- card code
+	 * @return {@code long}
+	 */
+	public static long remove(long hand, int code){
+		return hand - CARD[code];
+	}
+
+	//The value of the hand with every ace counted as one
+	public static int hardTotal(long hand){
+		return (int) (hand >>> HARD_SHIFT) & 63;
+	}
+
+	//The number of cards in the hand
+	public static int size(long hand){
+		return (int) (hand >>> COUNT_SHIFT);
+	}
+
+	//The number of aces in the hand
+	public static int aces(long hand){
+		return (int) hand & (1 << ACE_BITS) - 1;
+	}
+
+	//How many cards of a rank the hand holds, 0 for aces up to 12 for kings
+	public static int count(long hand, int rank){
+		return rank == 0 ? aces(hand) : (int) (hand >>> shift(rank)) & 15;
+	}
+
+	//The rank counts alone, the same for the same cards in any order
+	public static long ranks(long hand){
+		return hand & RANK_MASK;
+	}
+
+	/**
+	 * The best value of the hand, one ace is counted as eleven when that
+	 * does not take the hand over 21
+	 * @param {@code long}
+	 * @return {@code int}
+	 */
+	public static int bestValue(long hand){
+		return BEST[(int) (hand >>> HARD_SHIFT - ACE_BITS) & 63 << ACE_BITS | aces(hand)];
+	}
+
+	//Whether an ace is being counted as eleven
+	public static boolean isSoft(long hand){
+		return bestValue(hand) != hardTotal(hand);
+	}
+
+	//Whether the hand has gone over 21
+	public static boolean isBust(long hand){
+		return hardTotal(hand) > 21;
+	}
+
+	//An ace and a ten valued card as the only two cards
+	public static boolean isBlackjack(long hand){
+		return size(hand) == 2 && hardTotal(hand) == 11 && aces(hand) != 0;
+	}
+
+	/**
+	 * Whether the hand is two cards of the same value. Either both are of
+	 * one rank, so that ranks count is 2, or both are worth ten, the only
+	 * way two cards without an ace make a hard 20
+	 * @param {@code long}
+	 * @return {@code boolean}
+	 */
+	public static boolean isPair(long hand){
+		return size(hand) == 2 && ((hand & TWOS) != 0 || hardTotal(hand) == 20);
+	}
+
+	/**
+	 * The cards of a hand, as the ranks of the cards held
+	 * @param {@code long}
+	 * @return {@code String}
+	 */
+	public static String toString(long hand){
+		StringBuilder sb = new StringBuilder("[");
+		String names = "A23456789TJQK";
+		for(int r = 0; r < RANKS; ++r)
+			for(int i = count(hand, r); i > 0; --i)
+				sb.append(names.charAt(r));
+		return sb.append("] ").append(bestValue(hand)).append(isSoft(hand) ? " soft" : "").toString();
+	}
+
+	//Checks every hand up to the given size made from the cards 0 to 12, one of each rank, against Hand
+	private static long check(Hand h, long p, int left){
+		if(h.size() >= 2 && (bestValue(p) != h.bestValue() || isSoft(p) != h.isSoft() || isPair(p) != h.isPair()
+				|| isBlackjack(p) != h.isBlackjack() || isBust(p) != h.isBust() || size(p) != h.size()))
+			throw new AssertionError(h + " " + toString(p));
+		if(left == 0 || h.isBust())
+			return 1;
+		long n = 1;
+		for(int code = 0; code < RANKS; ++code){
+			h.addCard(code);
+			n += check(h, add(p, code), left - 1);
+			h.removeLast();
+		}
+		return n;
+	}
+
+	public static void main(String[] args){
+		//checks the packed hands against Hand, then times both
+		long checked = check(Hand.newHand(), 0, 6);
+		//every run of aces an eight deck shoe can deal, up to the one that goes over 21
+		Hand h = Hand.newHand();
+		long p = 0;
+		for(int i = 0; i < 22; ++i){
+			h.addCard(0);
+			p = add(p, 0);
+			if(h.size() >= 2 && (bestValue(p) != h.bestValue() || isSoft(p) != h.isSoft() || aces(p) != i + 1
+					|| count(p, 1) != 0 || isBust(p) != h.isBust()))
+				throw new AssertionError(h + " " + toString(p));
+			checked++;
+		}
+		System.out.println("Checked " + checked + " hands");
+		long sum = 0;
+		ShuffleSource source = ShuffleSource.seeded(1);
+		int[] codes = new int[3 << 18];
+		for(int i = 0; i < codes.length; ++i)
+			codes[i] = source.nextInt(Card.DECK_SIZE);
+		for(int round = 0; round < 5; ++round){
+			long start = System.nanoTime();
+			for(int i = 0; i + 2 < codes.length; i += 3){
+				long q = add(add(add(0, codes[i]), codes[i + 1]), codes[i + 2]);
+				sum += bestValue(q) + (isPair(q) ? 1 : 0);
+			}
+			long packed = System.nanoTime() - start;
+			start = System.nanoTime();
+			h = Hand.newHand();
+			for(int i = 0; i + 2 < codes.length; i += 3){
+				h.bust();
+				h.addCard(codes[i]);
+				h.addCard(codes[i + 1]);
+				h.addCard(codes[i + 2]);
+				sum += h.bestValue() + (h.isPair() ? 1 : 0);
+			}
+			long list = System.nanoTime() - start;
+			System.out.println(String.format("packed %.1f ns/hand, Hand %.1f ns/hand",
+				3.0 * packed / codes.length, 3.0 * list / codes.length));
+		}
+		System.out.println(sum);
+	}
+}
@@ -1,3 +1,5 @@
+package blackjack;
+
 public interface Person{
 	Card hit();
 	Card dealNext();
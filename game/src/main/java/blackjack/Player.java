@@ -0,0 +1,158 @@
+package blackjack;
+
+import java.util.*;
+
+public class Player implements Person{
+	private Person dealer;   //The delear that you are playing against
+	private final Hand hand; //The players hand of cards
+	private int pot;         //The amount of money the player has to gamble with, only changed by the tables thread
+	private int bet;         //The bet on the hand being played, or the last one
+	private Table table;
+	
+	/**
+	 * Player class constructor, used by the static factory and by
+	 * players that make their own choices
+	 * @param Hand
+	 * @param int
+	 */
+	protected Player(Hand hand, int pot){
+		this.hand = hand;
+		this.pot = pot;
+	}
+	
+	/**
+	 * Static factory method to join a game
+	 * @param Hand, int
+	 * Forwards to the private constructor
+	 */
+	public static Player joinGame(Hand hand, int pot){
+		Player p = new Player(hand, pot);
+		return p;
+	}
+	
+	//Sets the table of the player
+	public void sitAtTable(Table table){
+		this.table = table;
+	}
+	
+	//The table the player sits at, null before sitting down
+	public Table getTable(){
+		return table;
+	}
+	
+	//bets on hand before starting, the bet goes into the tables pot
+	public void placeBet(int bet){
+		if(bet > pot)
+			bet = pot;
+		this.bet = bet;
+		table.setPot(table.getPot() + bet);
+	}
+	
+	//The bet on the hand being played, or the last one once it is settled
+	public int getBet(){
+		return bet;
+	}
+	
+	//Adds to the bet in play, for a double or a split, the money goes into the tables pot
+	public void raise(int amount){
+		table.setPot(table.getPot() + amount);
+	}
+	
+	//The changes that are made when a player wins a hand, paid as the tables rules say
+	public void won(boolean blackJack){
+		won(bet, blackJack);
+	}
+	
+	/**
+	 * Pays a winning hand with the given bet, as the tables rules say
+	 * @param {@code int} -- the bet on the hand, {@code boolean} -- the hand was a blackjack
+	 */
+	public void won(int handBet, boolean blackJack){
+		pot += table.getRules().winnings(handBet, blackJack);
+		table.setPot(table.getPot() - handBet);
+	}
+	
+	//The changes made when a player loses a hand
+	public void lost(){
+		lost(bet);
+	}
+	
+	//The changes made when a player loses a hand with the given bet
+	public void lost(int handBet){
+		pot -= handBet;
+		table.setPot(table.getPot() - handBet);
+	}
+	
+	public void push(){
+		push(bet);
+	}
+	
+	//Takes back the bet of a tied hand
+	public void push(int handBet){
+		table.setPot(table.getPot() - handBet);
+	}
+	
+	//The changes made when a player gives up a hand, losing half the bet
+	public void surrender(){
+		surrender(bet);
+	}
+	
+	//The changes made when a player gives up a hand with the given bet
+	public void surrender(int handBet){
+		pot -= table.getRules().surrenderLoss(handBet);
+		table.setPot(table.getPot() - handBet);
+	}
+		
+	
+	//simply adds a card to the hand
+	public Card hit(){
+		Card c = dealer.dealNext();
+		hand.addCard(c);
+		return c;
+	}
+	
+	@Override public String toString(){
+		return hand.toString() + "\nHand Value: " + hand.bestValue() + "\nPot: " + pot;
+	}
+	
+	/**
+	 * Sets the dealer the player plays against. The dealer is unknown
+	 * at construction time
+	 * @param Person
+	 */
+	public void setDealer(Person dealer){
+		this.dealer = dealer;
+	}
+	
+	//gives a view of the hand
+	public Hand viewHand(){
+		return hand;
+	}
+	
+	public int getPot(){
+		return pot;
+	}
+	
+	public void refreshPot(){
+		pot = 500;
+	}
+	
+	//Gives the player a fresh pot of the given amount
+	public void refreshPot(int amount){
+		pot = amount;
+	}
+	
+	//unsupported for Player
+	public Card dealNext(){
+		throw new UnsupportedOperationException("Not available");
+	}
+	
+	public static void main(String[] args){
+		ArrayList<Card> sample = new ArrayList<Card>();
+		Hand sampleHand = new Hand(sample);
+		Player a = Player.joinGame(sampleHand, 30);
+		Player b = Player.joinGame(sampleHand, 20);
+		a.setDealer(b);
+		b.setDealer(a);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package blackjack;
+
+/**
+ * A source of decisions for the player at a table. The console game asks the
+ * person at the keyboard for each bet and move, a headless table asks a
+ * strategy instead, so no input or output is needed to play a hand.
+ */
+public interface PlayerStrategy{
+	/**
+	 * The amount to bet on the next hand
+	 * @param {@code int} -- the money the player currently has
+	 * @param {@code CardCount} -- the counts of the shoe the hand is dealt from
+	 * @return {@code int}
+	 */
+	int nextBet(int pot, CardCount count);
+	
+	/**
+	 * The next move to make with the given hand
+	 * @param {@code Hand} -- the players hand
+	 * @param {@code Card} -- the dealers face up card
+	 * @return {@code Table.Move}
+	 */
+	Table.Move nextMove(Hand hand, Card dealerCard);
+}
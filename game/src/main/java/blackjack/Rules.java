@@ -0,0 +1,306 @@
+package blackjack;
+
+/**
+ * The rules a table is played by: the shoe, when the dealer stands, what a
+ * blackjack pays, when a player may double, split or surrender. A set of
+ * rules is fixed once made, every change gives a new set.
+ *
+ * Everything the game asks of the rules while a hand is played is worked
+ * out when the rules are made and kept in small tables, whether the dealer
+ * stands on a total, what a win pays and whether a total may be doubled,
+ * so asking costs an array read and no branching on the rule settings.
+ * @Immutable
+ */
+public final class Rules{
+	/**
+	 * Which two card totals a player may double on
+	 */
+	public enum Doubling{
+		ANY_TWO, NINE_TO_ELEVEN, TEN_TO_ELEVEN, NONE;
+	}
+
+	private static final int SOFT = 32;      //added to a total to index the soft half of a table
+	public static final int MAX_SPLIT_HANDS = 4; //most hands a seat can split into
+	public static final int MAX_HAND_CARDS = handCards(Shoe.MAX_DECKS); //most cards a hand can hold from any shoe
+	public static final int MAX_MOVES = MAX_SPLIT_HANDS * MAX_HAND_CARDS - 1; //most moves a seat can make in a round, by any rules
+
+	//a six deck shoe dealt to three quarters, the dealer hits soft 17, blackjack pays 3:2,
+	//double any two cards, also after splitting, split to four hands, late surrender
+	private static final Rules STANDARD = new Rules(6, 0.75, true, 3, 2, Doubling.ANY_TWO, true, 4, false, false, true);
+
+	private final int decks;
+	private final double penetration;
+	private final boolean hitSoft17;
+	private final int blackjackWins, blackjackBets; //a blackjack wins blackjackWins for every blackjackBets bet
+	private final Doubling doubling;
+	private final boolean doubleAfterSplit;
+	private final int splitHands;                   //most hands a player may split into, 1 for no splitting
+	private final boolean resplitAces, hitSplitAces;
+	private final boolean surrender;                //late surrender, after the dealer checks for blackjack
+
+	private final boolean[] stands = new boolean[2 * SOFT]; //whether the dealer stands, by total and softness
+	private final boolean[] doubles = new boolean[2 * SOFT]; //whether a two card hand may double, by total and softness
+	private final int[] wins = new int[2];          //amount won for each unit bet, times WIN_SCALE, by blackjack or not
+	private final int maxMoves;                     //most moves a seat can make in a round
+	private static final int WIN_SCALE = 10;        //lets 6:5 and 3:2 be held in whole numbers
+	private static final int MAX_PAYOUT = 15;       //largest either side of the payout can be, code() packs each into 4 bits
+
+	/**
+	 * Private constructor, builds the lookup tables for the rules
+	 */
+	private Rules(int decks, double penetration, boolean hitSoft17, int blackjackWins, int blackjackBets,
+			Doubling doubling, boolean doubleAfterSplit, int splitHands, boolean resplitAces,
+			boolean hitSplitAces, boolean surrender){
+		if(decks < 1 || decks > Shoe.MAX_DECKS)
+			throw new IllegalArgumentException("Decks must be between 1 and " + Shoe.MAX_DECKS + ": " + decks);
+		if(!(penetration > 0 && penetration <= 1))
+			throw new IllegalArgumentException("Penetration must be in (0, 1]: " + penetration);
+		if(blackjackWins < 1 || blackjackBets < 1 || blackjackWins > MAX_PAYOUT || blackjackBets > MAX_PAYOUT
+				|| WIN_SCALE * blackjackWins % blackjackBets != 0)
+			throw new IllegalArgumentException("Unsupported blackjack payout " + blackjackWins + ":" + blackjackBets);
+		if(splitHands < 1 || splitHands > MAX_SPLIT_HANDS)
+			throw new IllegalArgumentException("Split hands must be between 1 and " + MAX_SPLIT_HANDS + ": " + splitHands);
+		this.decks = decks;
+		this.penetration = penetration;
+		this.hitSoft17 = hitSoft17;
+		this.blackjackWins = blackjackWins;
+		this.blackjackBets = blackjackBets;
+		this.doubling = doubling;
+		this.doubleAfterSplit = doubleAfterSplit;
+		this.splitHands = splitHands;
+		this.resplitAces = resplitAces;
+		this.hitSplitAces = hitSplitAces;
+		this.surrender = surrender;
+		for(int total = 0; total < SOFT; ++total){
+			stands[total] = total >= 17;
+			stands[SOFT + total] = total > 17 || (total == 17 && !hitSoft17);
+			int hard = total;
+			doubles[total] = doubling == Doubling.ANY_TWO
+				|| (doubling == Doubling.NINE_TO_ELEVEN && hard >= 9 && hard <= 11)
+				|| (doubling == Doubling.TEN_TO_ELEVEN && hard >= 10 && hard <= 11);
+			doubles[SOFT + total] = doubling == Doubling.ANY_TWO;
+		}
+		wins[0] = WIN_SCALE;
+		wins[1] = WIN_SCALE * blackjackWins / blackjackBets;
+		//each hand hits until it has its most cards, then stands, and every hand but the first took a split
+		maxMoves = splitHands * handCards(decks) - 1;
+	}
+
+	/**
+	 * The most cards a hand can hold from a shoe of the given decks, taking
+	 * the smallest cards the shoe has until the hand goes over 21. A hand
+	 * can draw at 21, so the card that takes it over is counted
+	 * @param {@code int} -- decks
+	 * @return {@code int}
+	 */
+	private static int handCards(int decks){
+		int total = 0, cards = 0;
+		for(int value = 1; total <= 21; ++value)
+			for(int left = (value == 10 ? 16 : 4) * decks; left > 0 && total <= 21; --left){
+				total += value;
+				cards++;
+			}
+		return cards;
+	}
+
+	/**
+	 * The rules of a common six deck shoe game. The dealer hits soft 17,
+	 * blackjack pays 3:2, any two cards may be doubled, also after a split,
+	 * hands may be split up to four, split aces get one card each and late
+	 * surrender is offered
+	 * @return {@code Rules}
+	 */
+	public static Rules standard(){
+		return STANDARD;
+	}
+
+	//A copy of these rules with another shoe
+	public Rules withShoe(int decks, double penetration){
+		return new Rules(decks, penetration, hitSoft17, blackjackWins, blackjackBets, doubling,
+			doubleAfterSplit, splitHands, resplitAces, hitSplitAces, surrender);
+	}
+
+	//A copy of these rules where the dealer hits soft 17, or stands on it
+	public Rules withHitSoft17(boolean hit){
+		return new Rules(decks, penetration, hit, blackjackWins, blackjackBets, doubling,
+			doubleAfterSplit, splitHands, resplitAces, hitSplitAces, surrender);
+	}
+
+	/**
+	 * A copy of these rules with another blackjack payout, such as 3:2 or 6:5.
+	 * Both sides are at most 15, so 12:20 has to be given as 3:5
+	 * @param {@code int} -- amount won, {@code int} -- for this much bet
+	 * @return {@code Rules}
+	 */
+	public Rules withBlackjackPays(int wins, int bet){
+		return new Rules(decks, penetration, hitSoft17, wins, bet, doubling,
+			doubleAfterSplit, splitHands, resplitAces, hitSplitAces, surrender);
+	}
+
+	//A copy of these rules with other doubling rules
+	public Rules withDoubling(Doubling doubling, boolean afterSplit){
+		return new Rules(decks, penetration, hitSoft17, blackjackWins, blackjackBets, doubling,
+			afterSplit, splitHands, resplitAces, hitSplitAces, surrender);
+	}
+
+	/**
+	 * A copy of these rules with other splitting rules
+	 * @param {@code int} -- most hands a player may split into, 1 for no splitting
+	 * @param {@code boolean} -- split aces may be split again
+	 * @param {@code boolean} -- split aces may take more than one card
+	 * @return {@code Rules}
+	 */
+	public Rules withSplitting(int hands, boolean resplitAces, boolean hitSplitAces){
+		return new Rules(decks, penetration, hitSoft17, blackjackWins, blackjackBets, doubling,
+			doubleAfterSplit, hands, resplitAces, hitSplitAces, surrender);
+	}
+
+	//A copy of these rules with late surrender offered or not
+	public Rules withSurrender(boolean surrender){
+		return new Rules(decks, penetration, hitSoft17, blackjackWins, blackjackBets, doubling,
+			doubleAfterSplit, splitHands, resplitAces, hitSplitAces, surrender);
+	}
+
+	/**
+	 * Whether the dealer stands on a hand
+	 * @param {@code int} -- best value of the dealers hand, at most 31
+	 * @param {@code boolean} -- the hand is soft
+	 * @return {@code boolean}
+	 */
+	public boolean dealerStands(int bestValue, boolean soft){
+		return stands[(soft ? SOFT : 0) + bestValue];
+	}
+
+	/**
+	 * Whether a hand of two cards may be doubled
+	 * @param {@code int} -- best value of the hand, {@code boolean} -- the hand is soft
+	 * @return {@code boolean}
+	 */
+	public boolean mayDouble(int bestValue, boolean soft){
+		return doubles[(soft ? SOFT : 0) + bestValue];
+	}
+
+	/**
+	 * The amount a winning bet wins, on top of getting the bet back.
+	 * Fractions are rounded down, as a table pays them
+	 * @param {@code int} -- the bet, {@code boolean} -- the hand was a blackjack
+	 * @return {@code int}
+	 */
+	public int winnings(int bet, boolean blackjack){
+		return (int) ((long) bet * wins[blackjack ? 1 : 0] / WIN_SCALE);
+	}
+
+	/**
+	 * The amount lost by surrendering a bet, half of it, rounded up
+	 * @param {@code int}
+	 * @return {@code int}
+	 */
+	public int surrenderLoss(int bet){
+		return bet - bet / 2;
+	}
+
+	/**
+	 * A new shoe for these rules
+	 * @param {@code ShuffleSource}
+	 * @return {@code Shoe}
+	 */
+	public Shoe newShoe(ShuffleSource source){
+		return Shoe.createShoe(decks, penetration, source);
+	}
+
+	public int decks(){
+		return decks;
+	}
+
+	public double penetration(){
+		return penetration;
+	}
+
+	public boolean hitSoft17(){
+		return hitSoft17;
+	}
+
+	public Doubling doubling(){
+		return doubling;
+	}
+
+	public boolean doubleAfterSplit(){
+		return doubleAfterSplit;
+	}
+
+	//Most hands a player may split into, 1 when splitting is not allowed
+	public int splitHands(){
+		return splitHands;
+	}
+
+	public boolean resplitAces(){
+		return resplitAces;
+	}
+
+	public boolean hitSplitAces(){
+		return hitSplitAces;
+	}
+
+	public boolean surrender(){
+		return surrender;
+	}
+
+	/**
+	 * The most moves a seat can make in one round: every hand it can split
+	 * into hitting until it holds the most cards the shoe allows, standing,
+	 * and the splits that made the hands
+	 * @return {@code int}
+	 */
+	public int maxMoves(){
+		return maxMoves;
+	}
+
+	/**
+	 * Packs every rule but the penetration into a long, so the rules a log
+	 * was played by can be written along with it
+	 * @return {@code long}
+	 */
+	public long code(){
+		return decks
+			| (hitSoft17 ? 1L : 0) << 4
+			| (long) blackjackWins << 5
+			| (long) blackjackBets << 9
+			| (long) doubling.ordinal() << 13
+			| (doubleAfterSplit ? 1L : 0) << 15
+			| (long) splitHands << 16
+			| (resplitAces ? 1L : 0) << 19
+			| (hitSplitAces ? 1L : 0) << 20
+			| (surrender ? 1L : 0) << 21;
+	}
+
+	/**
+	 * The rules packed by {@code code()}
+	 * @param {@code long} -- the code, {@code double} -- penetration
+	 * @return {@code Rules}
+	 */
+	public static Rules decode(long code, double penetration){
+		return new Rules((int) (code & 0xf), penetration, (code >>> 4 & 1) != 0,
+			(int) (code >>> 5 & 0xf), (int) (code >>> 9 & 0xf), Doubling.values()[(int) (code >>> 13 & 3)],
+			(code >>> 15 & 1) != 0, (int) (code >>> 16 & 7), (code >>> 19 & 1) != 0,
+			(code >>> 20 & 1) != 0, (code >>> 21 & 1) != 0);
+	}
+
+	@Override public boolean equals(Object o){
+		if(!(o instanceof Rules))
+			return false;
+		Rules r = (Rules) o;
+		return code() == r.code() && penetration == r.penetration;
+	}
+
+	@Override public int hashCode(){
+		return Long.hashCode(code()) * 31 + Double.hashCode(penetration);
+	}
+
+	@Override public String toString(){
+		return String.format("%d decks to %.0f%%, %s, blackjack pays %d:%d, double %s%s, split to %d%s%s%s",
+			decks, 100 * penetration, hitSoft17 ? "H17" : "S17", blackjackWins, blackjackBets,
+			doubling, doubleAfterSplit ? " and after split" : "", splitHands,
+			resplitAces ? ", resplit aces" : "", hitSplitAces ? ", hit split aces" : "",
+			surrender ? ", late surrender" : "");
+	}
+}
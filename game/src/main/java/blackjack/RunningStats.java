@@ -0,0 +1,97 @@
+package blackjack;
+
+/**
+ * The mean, variance and standard error of a stream of values, kept up to
+ * date one value at a time with Welford's method, so no values are stored
+ * and adding one is a few arithmetic operations. The stats of separate
+ * streams, such as those of several worker threads, can be merged into the
+ * stats of all of them together.
+ *
+ * Only one thread may add to a RunningStats. To let other threads see how
+ * it is going, the owner publishes a {@code copy()}, which is never changed
+ * once made.
+ */
+public final class RunningStats{
+	public static final double Z95 = 1.959964; //standard normal quantile of a two sided 95% interval
+
+	private long count;
+	private double mean;
+	private double m2;   //sum of squared differences from the mean
+
+	public RunningStats(){
+	}
+
+	//private constructor used by copy
+	private RunningStats(long count, double mean, double m2){
+		this.count = count;
+		this.mean = mean;
+		this.m2 = m2;
+	}
+
+	/**
+	 * Adds a value
+	 * @param {@code double}
+	 */
+	public void add(double x){
+		count++;
+		double d = x - mean;
+		mean += d / count;
+		m2 += d * (x - mean);
+	}
+
+	/**
+	 * Adds in the values of another stream, as if every one of them had
+	 * been added to this one
+	 * @param {@code RunningStats}
+	 */
+	public void merge(RunningStats other){
+		if(other.count == 0)
+			return;
+		long n = count + other.count;
+		double d = other.mean - mean;
+		mean += d * other.count / n;
+		m2 += other.m2 + d * d * ((double) count * other.count / n);
+		count = n;
+	}
+
+	//A copy that is not changed by later additions to this one
+	public RunningStats copy(){
+		return new RunningStats(count, mean, m2);
+	}
+
+	public long count(){
+		return count;
+	}
+
+	public double mean(){
+		return mean;
+	}
+
+	//The sample variance, 0 with fewer than two values
+	public double variance(){
+		return count < 2 ? 0 : m2 / (count - 1);
+	}
+
+	public double standardDeviation(){
+		return Math.sqrt(variance());
+	}
+
+	//The standard error of the mean
+	public double standardError(){
+		return count == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(variance() / count);
+	}
+
+	/**
+	 * The width of the 95% confidence interval of the mean, from its lowest
+	 * to its highest value
+	 * @return {@code double}
+	 */
+	public double width(){
+		return 2 * Z95 * standardError();
+	}
+
+	@Override public String toString(){
+		return String.format("%+.5f +/- %.5f (95%%), sd %.4f over %d", mean, Z95 * standardError(),
+			standardDeviation(), count);
+	}
+}
@@ -0,0 +1,329 @@
+package blackjack;
+
+import java.util.*;
+
+/**
+ * A dealing shoe holding one or more decks of cards. The cards are kept as
+ * codes in an array and dealt by moving a cursor through it, so dealing a
+ * card never moves the other cards. A cut card is placed part way through
+ * the shoe, once the cursor reaches it the shoe should be reshuffled before
+ * the next round. Reshuffling reuses the same array. Running card counts are
+ * updated with every card dealt and can be read through {@code count()}.
+ * Every shuffle takes a fresh seed from the shoes ShuffleSource and records
+ * it, a shoe replayed from that seed deals the same cards in the same order.
+ * A shoe belongs to a single dealer and is not thread safe.
+ */
+public final class Shoe{
+	public static final int MAX_DECKS = 8;
+	public static final int VALUES = 10; //card values, ace(1) through ten
+
+	//count weights of each card code for the Hi-Lo, KO and Omega II systems
+	private static final byte[] HI_LO = weights(new int[]{-1, 1, 1, 1, 1, 1, 0, 0, 0, -1});
+	private static final byte[] KO = weights(new int[]{-1, 1, 1, 1, 1, 1, 1, 0, 0, -1});
+	private static final byte[] OMEGA_II = weights(new int[]{0, 1, 1, 2, 2, 2, 1, 0, -1, -2});
+
+	private final byte[] cards; //codes of every card in the shoe
+	private final int[] left;   //cards not yet dealt of each value, indexed by value - 1
+	private final int decks;    //number of decks in the shoe
+	private final int cutCard;  //position of the cut card in the shoe
+	private final double penetration; //the part of the shoe dealt before the cut card
+	private final ShuffleSource source; //where the seed of every shuffle comes from
+	private long shuffleSeed;   //seed of the last full shuffle
+	private int next;           //position of the next card to deal
+	private int hiLo, ko, omegaTwo; //running counts
+	private final CardCount count = new Count();
+
+	/**
+	 * Private constructor, fills the shoe with the given number of decks
+	 * in order
+	 * @param {@code int}, {@code double}, {@code ShuffleSource}
+	 */
+	private Shoe(int decks, double penetration, ShuffleSource source){
+		this.decks = decks;
+		this.cutCard = cutCard(decks, penetration);
+		this.penetration = penetration;
+		this.source = source;
+		cards = new byte[decks * Card.DECK_SIZE];
+		for(int i = 0; i < cards.length; ++i)
+			cards[i] = (byte) (i % Card.DECK_SIZE);
+		left = new int[VALUES];
+		fill();
+	}
+
+	//sets the counts of cards left to a full shoe
+	private void fill(){
+		for(int v = 0; v < VALUES; ++v)
+			left[v] = 4 * decks;
+		left[VALUES - 1] = 16 * decks;
+		hiLo = 0;
+		ko = 4 - 4 * decks;
+		omegaTwo = 0;
+	}
+
+	/**
+	 * Builds a table of count weights indexed by card code
+	 * @param {@code int[]} -- weight of each value, ace through ten
+	 * @return {@code byte[]}
+	 */
+	private static byte[] weights(int[] byValue){
+		byte[] w = new byte[Card.DECK_SIZE];
+		for(int code = 0; code < Card.DECK_SIZE; ++code)
+			w[code] = (byte) byValue[Card.cardValue(code) - 1];
+		return w;
+	}
+
+	/**
+	 * Static factory method to create a shoe shuffled from a random seed
+	 * @param {@code int} -- number of decks, 1 to 8
+	 * @param {@code double} -- penetration, the part of the shoe dealt
+	 * before the cut card is reached, greater than 0 and at most 1
+	 * @return {@code Shoe}
+	 */
+	public static Shoe createShoe(int decks, double penetration){
+		return createShoe(decks, penetration, ShuffleSource.random());
+	}
+
+	/**
+	 * Static factory method to create a shoe taking the seed of every
+	 * shuffle from the given source, the same source seed gives the same
+	 * shoes every time
+	 * @param {@code int} -- number of decks, 1 to 8
+	 * @param {@code double} -- penetration, greater than 0 and at most 1
+	 * @param {@code ShuffleSource}
+	 * @return {@code Shoe}
+	 */
+	public static Shoe createShoe(int decks, double penetration, ShuffleSource source){
+		Shoe s = new Shoe(decks, penetration, source);
+		s.shuffle();
+		return s;
+	}
+
+	/**
+	 * Static factory method to deal a recorded shoe again, the cards come
+	 * out in the order they did after the shuffle with the given seed.
+	 * Later shuffles take their seeds from a source started at that seed
+	 * @param {@code int} -- number of decks, 1 to 8
+	 * @param {@code double} -- penetration, greater than 0 and at most 1
+	 * @param {@code long} -- a seed from {@code shuffleSeed()}
+	 * @return {@code Shoe}
+	 */
+	public static Shoe replay(int decks, double penetration, long shuffleSeed){
+		Shoe s = new Shoe(decks, penetration, ShuffleSource.seeded(shuffleSeed));
+		s.shuffle(shuffleSeed);
+		return s;
+	}
+
+	//checks the arguments of a new shoe and places the cut card
+	private static int cutCard(int decks, double penetration){
+		if(decks < 1 || decks > MAX_DECKS)
+			throw new IllegalArgumentException("Decks must be between 1 and " + MAX_DECKS + ": " + decks);
+		if(!(penetration > 0 && penetration <= 1))
+			throw new IllegalArgumentException("Penetration must be in (0, 1]: " + penetration);
+		return (int) Math.ceil(decks * Card.DECK_SIZE * penetration);
+	}
+
+	/**
+	 * Deals the code of the next card in the shoe
+	 * @return {@code int}
+	 * @throws {@code NoSuchElementException} if the shoe is empty
+	 */
+	public int next(){
+		if(next == cards.length)
+			throw new NoSuchElementException("Shoe is empty");
+		int code = cards[next++];
+		left[Card.cardValue(code) - 1]--;
+		hiLo += HI_LO[code];
+		ko += KO[code];
+		omegaTwo += OMEGA_II[code];
+		return code;
+	}
+
+	/**
+	 * Deals the codes of the next cards in the shoe into an array, in one
+	 * pass
+	 * @param {@code int[]}, {@code int} -- number of cards
+	 * @throws {@code NoSuchElementException} if the shoe has fewer cards left
+	 */
+	public void next(int[] codes, int n){
+		if(n > cards.length - next)
+			throw new NoSuchElementException("Shoe has " + (cards.length - next) + " cards left, " + n + " wanted");
+		int h = hiLo, k = ko, o = omegaTwo;
+		for(int i = 0; i < n; ++i){
+			int code = cards[next + i];
+			codes[i] = code;
+			left[Card.cardValue(code) - 1]--;
+			h += HI_LO[code];
+			k += KO[code];
+			o += OMEGA_II[code];
+		}
+		next += n;
+		hiLo = h;
+		ko = k;
+		omegaTwo = o;
+	}
+
+	/**
+	 * Puts every card back in the shoe and shuffles it with a single
+	 * Fisher-Yates pass over the array, using the next seed from the source
+	 */
+	public void shuffle(){
+		shuffle(source.nextLong());
+	}
+
+	/**
+	 * Puts every card back in the shoe in the starting order, then shuffles
+	 * it from the seed, so the order only depends on the seed. Used to deal
+	 * a recorded shoe again
+	 * @param {@code long} -- a seed from {@code shuffleSeed()}
+	 */
+	public void shuffle(long seed){
+		shuffleSeed = seed;
+		for(int i = 0; i < cards.length; ++i)
+			cards[i] = (byte) (i % Card.DECK_SIZE);
+		next = 0;
+		fill();
+		ShuffleSource.shuffle(seed, cards, 0);
+	}
+
+	/**
+	 * Deals and throws away cards until the given number have been dealt
+	 * since the last full shuffle, the counts see them as dealt. If more
+	 * have been dealt already the shoe is shuffled again from its seed first
+	 * @param {@code int} -- position, at most the size of the shoe
+	 */
+	public void skipTo(int position){
+		if(position < 0 || position > cards.length)
+			throw new IllegalArgumentException("Position must be between 0 and " + cards.length + ": " + position);
+		if(position < next)
+			shuffle(shuffleSeed);
+		while(next < position)
+			next();
+	}
+
+	/**
+	 * Shuffles the cards that have not been dealt yet, dealt cards stay out.
+	 * The shoe can no longer be replayed from its shuffle seed past this point
+	 */
+	public void shuffleRemaining(){
+		ShuffleSource.shuffle(source.nextLong(), cards, next);
+	}
+
+	//Determines whether the cut card has been reached
+	public boolean cutCardReached(){
+		return next >= cutCard;
+	}
+
+	//Determines whether every card has been dealt
+	public boolean empty(){
+		return next == cards.length;
+	}
+
+	//Number of cards left to deal
+	public int remaining(){
+		return cards.length - next;
+	}
+
+	/**
+	 * Number of cards of the given value that have not been dealt
+	 * @param {@code int} -- card value, 1 for an ace through 10
+	 * @return {@code int}
+	 */
+	public int remaining(int value){
+		return left[value - 1];
+	}
+
+	//The running counts of the shoe, the same view is returned every time
+	public CardCount count(){
+		return count;
+	}
+
+	//Seed of the last full shuffle, give it to {@code replay} to deal this shoe again
+	public long shuffleSeed(){
+		return shuffleSeed;
+	}
+
+	//Number of cards dealt since the last full shuffle
+	public int position(){
+		return next;
+	}
+
+	//Number of cards in the full shoe
+	public int size(){
+		return cards.length;
+	}
+
+	//Number of decks the shoe holds
+	public int decks(){
+		return decks;
+	}
+
+	//The part of the shoe dealt before the cut card is reached
+	public double penetration(){
+		return penetration;
+	}
+
+	/**
+	 * Reads the counts straight from the shoe
+	 */
+	private final class Count implements CardCount{
+		public int hiLo(){
+			return hiLo;
+		}
+
+		public int ko(){
+			return ko;
+		}
+
+		public int omegaTwo(){
+			return omegaTwo;
+		}
+
+		public double decksRemaining(){
+			return (double) remaining() / Card.DECK_SIZE;
+		}
+
+		public double hiLoTrueCount(){
+			return next == cards.length ? 0 : hiLo / decksRemaining();
+		}
+
+		public double omegaTwoTrueCount(){
+			return next == cards.length ? 0 : omegaTwo / decksRemaining();
+		}
+
+		@Override public String toString(){
+			return String.format("Hi-Lo %d (true %.2f), KO %d, Omega II %d (true %.2f), %.2f decks left",
+				hiLo, hiLoTrueCount(), ko, omegaTwo, omegaTwoTrueCount(), decksRemaining());
+		}
+	}
+
+	/**
+	 * Returns a representation of the cards left in the shoe, in the
+	 * order they will be dealt
+	 * @return {@code String}
+	 */
+	@Override public String toString(){
+		StringBuilder sb = new StringBuilder();
+		sb.append("Cards:\n");
+		for(int i = next; i < cards.length; ++i)
+			sb.append(Card.valueOf(cards[i]));
+		return sb.toString();
+	}
+
+	public static void main(String[] args){
+		Shoe s = Shoe.createShoe(6, 0.75);
+		System.out.println("Size: " + s.size() + " Decks: " + s.decks());
+		int dealt = 0;
+		while(!s.cutCardReached()){
+			s.next();
+			dealt++;
+		}
+		System.out.println("Dealt before cut card: " + dealt + " Remaining: " + s.remaining());
+		System.out.println(s.count());
+		s.shuffle();
+		Shoe again = Shoe.replay(6, 0.75, s.shuffleSeed());
+		boolean same = true;
+		while(!s.empty())
+			same &= s.next() == again.next();
+		System.out.println("Replayed from seed " + Long.toHexString(s.shuffleSeed()) + ", same cards: " + same);
+	}
+}
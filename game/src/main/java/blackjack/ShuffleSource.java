@@ -0,0 +1,126 @@
+package blackjack;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A seedable source of random numbers for shuffling, using the SplitMix64
+ * generator. The same seed always gives the same numbers, so a shoe shuffled
+ * from a known seed can be dealt again card for card. Independent streams
+ * can be split off a source, or derived from a master seed and an index, so
+ * every worker of a simulation gets its own reproducible stream without
+ * sharing a generator between threads.
+ * A source is not thread safe, each thread should use its own.
+ */
+public final class ShuffleSource{
+	private static final long GOLDEN = 0x9e3779b97f4a7c15L; //SplitMix64 increment
+
+	private final long seed; //the seed the source was created with
+	private long state;
+
+	/**
+	 * Private constructor to be used in the static factory methods
+	 * @param {@code long}
+	 */
+	private ShuffleSource(long seed){
+		this.seed = seed;
+		this.state = seed;
+	}
+
+	/**
+	 * Static factory method, a source giving the same numbers for the
+	 * same seed
+	 * @param {@code long}
+	 * @return {@code ShuffleSource}
+	 */
+	public static ShuffleSource seeded(long seed){
+		return new ShuffleSource(seed);
+	}
+
+	/**
+	 * Static factory method, a source with a seed picked at random. The seed
+	 * can still be read back with {@code seed()} to repeat a run
+	 * @return {@code ShuffleSource}
+	 */
+	public static ShuffleSource random(){
+		return new ShuffleSource(ThreadLocalRandom.current().nextLong());
+	}
+
+	/**
+	 * Static factory method, the stream of one worker out of many sharing a
+	 * master seed. The same master seed and index always give the same
+	 * stream, no matter which thread asks for it or when
+	 * @param {@code long} -- master seed, {@code int} -- worker index
+	 * @return {@code ShuffleSource}
+	 */
+	public static ShuffleSource stream(long master, int index){
+		return new ShuffleSource(mix(master + (index + 1L) * GOLDEN));
+	}
+
+	//The seed the source was created with
+	public long seed(){
+		return seed;
+	}
+
+	//The next 64 random bits
+	public long nextLong(){
+		return mix(state += GOLDEN);
+	}
+
+	/**
+	 * A random number from 0 up to, but not including, bound
+	 * @param {@code int} -- greater than 0
+	 * @return {@code int}
+	 */
+	public int nextInt(int bound){
+		return bounded(nextLong(), bound);
+	}
+
+	/**
+	 * Splits off a new source, independent of this one from then on
+	 * @return {@code ShuffleSource}
+	 */
+	public ShuffleSource split(){
+		return new ShuffleSource(nextLong());
+	}
+
+	/**
+	 * Shuffles part of an array with a single Fisher-Yates pass, using a
+	 * generator started from the seed. Nothing is allocated, and the same
+	 * seed always puts the cards in the same order
+	 * @param {@code long} -- seed, {@code byte[]} -- the cards,
+	 * {@code int} -- the first position to shuffle, earlier ones are left alone
+	 */
+	public static void shuffle(long seed, byte[] cards, int from){
+		long s = seed;
+		for(int i = cards.length - 1; i > from; --i){
+			int j = from + bounded(mix(s += GOLDEN), i - from + 1);
+			byte c = cards[i];
+			cards[i] = cards[j];
+			cards[j] = c;
+		}
+	}
+
+	//maps 64 random bits onto 0 to bound - 1 by multiplying the high 32 bits,
+	//the bias is below bound / 2^32, too small to matter for a shoe
+	private static int bounded(long bits, int bound){
+		return (int) (((bits >>> 32) * bound) >>> 32);
+	}
+
+	//the SplitMix64 output function
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	public static void main(String[] args){
+		ShuffleSource a = ShuffleSource.seeded(42), b = ShuffleSource.seeded(42);
+		System.out.println("Same seed, same numbers: " + (a.nextLong() == b.nextLong()));
+		for(int i = 0; i < 4; ++i)
+			System.out.println("Worker " + i + " seed: " + Long.toHexString(ShuffleSource.stream(42, i).seed()));
+		int[] counts = new int[6];
+		for(int i = 0; i < 600000; ++i)
+			counts[a.nextInt(6)]++;
+		System.out.println("Rolls of a die: " + java.util.Arrays.toString(counts));
+	}
+}
@@ -0,0 +1,423 @@
+package blackjack;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Plays blackjack without a person at the console. Every worker thread gets
+ * its own headless Table, so no state is shared between threads while hands
+ * are played, and each table is played with the same rules as the console
+ * game. When all workers are done their tallies are reported along with the
+ * number of hands played per second.
+ *
+ * Every worker gets its own ShuffleSource derived from the master seed of
+ * the run and its index, so a run started with the same seed deals the same
+ * cards at every table, however the threads are scheduled.
+ *
+ * Each worker also counts its settled hands into its own OutcomeHistogram,
+ * with nothing shared and nothing allocated per hand, and the report adds
+ * them together once the workers are done.
+ *
+ * Every worker keeps a RunningStats with one value per round, the money
+ * won over every seat divided by the money bet over every seat, and
+ * publishes a copy of it every CHUNK rounds. The seats of a round all play
+ * against the same dealer hand, so their results are not independent and
+ * the round, not the seat, is the sample the interval is worked out from.
+ * Reading the progress of a run only reads those copies, the workers never
+ * wait for it. A run made with {@code untilWidth} stops every table once the
+ * 95% confidence interval of the EV per unit bet is narrow enough, so a study
+ * plays as many hands as the precision it asks for needs, and no more. The
+ * hands played by such a run depend on timing, so it is not repeatable.
+ */
+public final class Simulator{
+	private final int threads;          //number of tables played at once
+	private final long handsPerThread;  //rounds played at every table, a hand per seat each
+	private final long seed;            //master seed of the run
+	private final Tables tables;        //creates the headless table for each thread
+	private final double width;         //stop once the confidence interval is this narrow, 0 to play every hand
+	private final Progress progress;    //told how the run is going, null when not
+	private final long interval;        //milliseconds between progress checks
+
+	private static final int CHUNK = 4096;       //rounds between publishing a workers stats
+	private static final long MIN_ROUNDS = 20000; //rounds needed before the interval is trusted
+
+	/**
+	 * Creates the table a worker plays at, with shoes shuffled from the
+	 * workers own source
+	 */
+	public interface Tables{
+		Table create(int id, ShuffleSource source) throws Exception;
+	}
+
+	/**
+	 * Told how a run is going while the tables are being played
+	 */
+	public interface Progress{
+		/**
+		 * Called on the thread that started the run
+		 * @param {@code RunningStats} -- the EV per unit bet over every table so far
+		 * @param {@code long} -- nanoseconds since the run started
+		 */
+		void update(RunningStats estimate, long nanos);
+	}
+
+	/**
+	 * Private constructor to be used in the static factory methods
+	 * @param {@code int}, {@code long}, {@code long}, {@code Tables}
+	 * @param {@code double}, {@code Progress}, {@code long}
+	 */
+	private Simulator(int threads, long handsPerThread, long seed, Tables tables,
+			double width, Progress progress, long interval){
+		this.threads = threads;
+		this.handsPerThread = handsPerThread;
+		this.seed = seed;
+		this.tables = tables;
+		this.width = width;
+		this.progress = progress;
+		this.interval = interval;
+	}
+
+	/**
+	 * Static factory method, a table is created for every thread since
+	 * tables, and the strategies playing them, are not shared. The tables
+	 * shuffle however they were made to, so the run cannot be repeated
+	 * @param {@code int} -- number of threads, one table each
+	 * @param {@code long} -- hands to play at each table
+	 * @param {@code Callable<Table>} -- creates a headless table per thread
+	 * @return {@code Simulator}
+	 */
+	public static Simulator create(int threads, long handsPerThread, final Callable<Table> tables){
+		return create(threads, handsPerThread, ShuffleSource.random().seed(), new Tables(){
+			public Table create(int id, ShuffleSource source) throws Exception{
+				return tables.call();
+			}
+		});
+	}
+
+	/**
+	 * Static factory method for a run that can be repeated, worker i gets
+	 * {@code ShuffleSource.stream(seed, i)} to shuffle its shoes with
+	 * @param {@code int} -- number of threads, one table each
+	 * @param {@code long} -- hands to play at each table
+	 * @param {@code long} -- master seed
+	 * @param {@code Tables} -- creates a headless table per thread
+	 * @return {@code Simulator}
+	 */
+	public static Simulator create(int threads, long handsPerThread, long seed, Tables tables){
+		if(threads < 1 || handsPerThread < 0)
+			throw new IllegalArgumentException("threads: " + threads + " hands: " + handsPerThread);
+		return new Simulator(threads, handsPerThread, seed, tables, 0, null, 1000);
+	}
+
+	/**
+	 * A copy of this simulator that stops once the 95% confidence interval of
+	 * the EV per unit bet is no wider than the given width.
+	 * The hands per table become the most each table plays
+	 * @param {@code double} -- width of the interval, from its low end to its high end
+	 * @return {@code Simulator}
+	 */
+	public Simulator untilWidth(double width){
+		if(!(width > 0))
+			throw new IllegalArgumentException("Width must be positive: " + width);
+		return new Simulator(threads, handsPerThread, seed, tables, width, progress, interval);
+	}
+
+	/**
+	 * A copy of this simulator that reports how the run is going
+	 * @param {@code Progress}, {@code long} -- milliseconds between reports
+	 * @return {@code Simulator}
+	 */
+	public Simulator withProgress(Progress progress, long intervalMillis){
+		if(intervalMillis < 1)
+			throw new IllegalArgumentException("Interval must be positive: " + intervalMillis);
+		return new Simulator(threads, handsPerThread, seed, tables, width, progress, intervalMillis);
+	}
+
+	/**
+	 * Plays every table to completion, one thread per table, or until the
+	 * confidence interval is narrow enough. Meanwhile the progress, if any,
+	 * is told how the run is going
+	 * @return {@code Report}
+	 */
+	public Report run() throws InterruptedException, ExecutionException{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			List<Future<Tally>> futures = new ArrayList<Future<Tally>>();
+			final AtomicReferenceArray<RunningStats> published = new AtomicReferenceArray<RunningStats>(threads);
+			final AtomicBoolean stop = new AtomicBoolean();
+			final CountDownLatch done = new CountDownLatch(threads);
+			long start = System.nanoTime();
+			for(int i = 0; i < threads; ++i){
+				final int id = i;
+				futures.add(pool.submit(new Callable<Tally>(){
+					public Tally call() throws Exception{
+						try{
+							ShuffleSource source = ShuffleSource.stream(seed, id);
+							return playTable(id, source.seed(), tables.create(id, source), published, stop);
+						} finally{
+							done.countDown();
+						}
+					}
+				}));
+			}
+			if(width > 0 || progress != null){
+				while(!done.await(interval, TimeUnit.MILLISECONDS)){
+					RunningStats estimate = estimate(published);
+					if(progress != null)
+						progress.update(estimate, System.nanoTime() - start);
+					if(width > 0 && estimate.count() >= MIN_ROUNDS && estimate.width() <= width)
+						stop.set(true);
+				}
+			}
+			List<Tally> tallies = new ArrayList<Tally>();
+			for(Future<Tally> f : futures)
+				tallies.add(f.get());
+			return new Report(seed, tallies, System.nanoTime() - start);
+		} finally{
+			pool.shutdown();
+		}
+	}
+
+	//The stats of every worker as last published, merged
+	private static RunningStats estimate(AtomicReferenceArray<RunningStats> published){
+		RunningStats all = new RunningStats();
+		for(int i = 0; i < published.length(); ++i){
+			RunningStats s = published.get(i);
+			if(s != null)
+				all.merge(s);
+		}
+		return all;
+	}
+
+	/**
+	 * Plays all the rounds at one table, a hand at every seat each round.
+	 * A player gets a fresh pot whenever the money runs out, so the table
+	 * can always keep playing. Every CHUNK rounds a copy of the tables stats
+	 * is published and the stop flag checked. The table is closed when done
+	 * @param {@code int}, {@code long}, {@code Table}
+	 * @param {@code AtomicReferenceArray<RunningStats>} -- where the stats are published
+	 * @param {@code AtomicBoolean} -- set once the run has played enough
+	 * @return {@code Tally}
+	 */
+	private Tally playTable(int id, long seed, Table table, AtomicReferenceArray<RunningStats> published,
+			AtomicBoolean stop){
+		Tally t = new Tally(id, seed);
+		table.setOutcomes(t.outcomes);
+		int seats = table.seats();
+		int[] before = new int[seats];
+		long start = System.nanoTime();
+		for(long i = 0; i < handsPerThread; ++i){
+			for(int s = 0; s < seats; ++s){
+				Player player = table.getPlayer(s);
+				if(player.getPot() <= 0)
+					player.refreshPot();
+				before[s] = player.getPot();
+			}
+			table.playHand();
+			long won = 0, bet = 0;
+			for(int s = 0; s < seats; ++s){
+				Player player = table.getPlayer(s);
+				int seatWon = player.getPot() - before[s];
+				t.record(table.lastOutcome(s), seatWon);
+				won += seatWon;
+				bet += player.getBet();
+			}
+			t.stats.add((double) won / bet);
+			if((i + 1) % CHUNK == 0){
+				published.set(id, t.stats.copy());
+				if(stop.get())
+					break;
+			}
+		}
+		published.set(id, t.stats.copy());
+		t.nanos = System.nanoTime() - start;
+		table.close();
+		return t;
+	}
+
+	/**
+	 * Totals for the hands played at one table. Only touched by the thread
+	 * playing that table until it is handed back through its Future
+	 */
+	public static final class Tally{
+		private final int id;
+		private final long seed; //seed of the workers ShuffleSource
+		private long hands, wins, blackjacks, losses, pushes, surrenders;
+		private long net;   //total money won(or lost, when negative) by the player
+		private long nanos; //time spent playing the table
+		private final OutcomeHistogram outcomes = new OutcomeHistogram(); //every hand settled at the table
+		private final RunningStats stats = new RunningStats(); //money won over every seat each round, per unit bet
+
+		private Tally(int id, long seed){
+			this.id = id;
+			this.seed = seed;
+		}
+
+		//adds a single hand to the totals
+		private void record(Table.Outcome outcome, int won){
+			hands++;
+			net += won;
+			switch(outcome){
+				case WIN:
+					wins++;
+					break;
+				case BLACKJACK:
+					blackjacks++;
+					break;
+				case LOSS:
+					losses++;
+					break;
+				case PUSH:
+					pushes++;
+					break;
+				case SURRENDER:
+					surrenders++;
+					break;
+			}
+		}
+
+		public long hands(){
+			return hands;
+		}
+
+		public long net(){
+			return net;
+		}
+
+		public long seed(){
+			return seed;
+		}
+
+		//Every hand settled at the table, including each hand of a split
+		public OutcomeHistogram outcomes(){
+			return outcomes;
+		}
+
+		//The EV per unit bet at the table, one value per round, with its spread
+		public RunningStats stats(){
+			return stats;
+		}
+
+		//hands per second played at this table
+		public double handsPerSecond(){
+			return nanos == 0 ? 0 : hands * 1e9 / nanos;
+		}
+
+		@Override public String toString(){
+			return String.format("Table %d (seed %016x): %d hands, %d won, %d blackjack, %d lost, %d push, %d surrender, net %d, %.0f hands/sec",
+				id, seed, hands, wins, blackjacks, losses, pushes, surrenders, net, handsPerSecond());
+		}
+	}
+
+	/**
+	 * The result of a run, the tally of each table and the time taken
+	 */
+	public static final class Report{
+		private final long seed;
+		private final List<Tally> tallies;
+		private final long nanos;
+
+		private Report(long seed, List<Tally> tallies, long nanos){
+			this.seed = seed;
+			this.tallies = Collections.unmodifiableList(tallies);
+			this.nanos = nanos;
+		}
+
+		//master seed of the run
+		public long seed(){
+			return seed;
+		}
+
+		public List<Tally> tallies(){
+			return tallies;
+		}
+
+		//total hands played over all tables
+		public long hands(){
+			long n = 0;
+			for(Tally t : tallies)
+				n += t.hands;
+			return n;
+		}
+
+		//The histograms of every table added together
+		public OutcomeHistogram outcomes(){
+			OutcomeHistogram all = new OutcomeHistogram();
+			for(Tally t : tallies)
+				all.merge(t.outcomes);
+			return all;
+		}
+
+		//The EV per unit bet over every table, one value per round, with its confidence interval
+		public RunningStats estimate(){
+			RunningStats all = new RunningStats();
+			for(Tally t : tallies)
+				all.merge(t.stats);
+			return all;
+		}
+
+		//hands per second over all tables, using the wall clock time of the run
+		public double handsPerSecond(){
+			return nanos == 0 ? 0 : hands() * 1e9 / nanos;
+		}
+
+		@Override public String toString(){
+			StringBuilder sb = new StringBuilder();
+			long net = 0;
+			for(Tally t : tallies){
+				sb.append(t).append("\n");
+				net += t.net;
+			}
+			sb.append(String.format("Total: %d hands in %.2fs, %.0f hands/sec, net %d, seed %d%n",
+				hands(), nanos / 1e9, handsPerSecond(), net, seed));
+			sb.append("EV per unit bet: ").append(estimate());
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.Simulator [rounds per table] [threads] [decks] [seed] [log directory] [seats] [width]
+	 * threads defaults to the number of available processors, decks to 6,
+	 * the seed to a random one and seats to 1. The same seed and threads
+	 * repeat a run. With a log directory, "-" for none, every table logs its
+	 * hands to its own HandLog in a subdirectory named after the table,
+	 * which needs tables with one seat. With a width the run stops once the
+	 * 95% confidence interval of the EV per unit bet is that narrow, the rounds
+	 * per table are then the most played, and progress is shown every second
+	 */
+	public static void main(String[] args) throws Exception{
+		long hands = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final int decks = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : ShuffleSource.random().seed();
+		final Path logs = args.length > 4 && !args[4].equals("-") ? Paths.get(args[4]) : null;
+		final int seats = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+		double width = args.length > 6 ? Double.parseDouble(args[6]) : 0;
+		final Metrics metrics = new Metrics();
+		Simulator sim = Simulator.create(threads, hands, seed, new Tables(){
+			public Table create(int id, ShuffleSource source) throws IOException{
+				Shoe shoe = Shoe.createShoe(decks, 0.75, source);
+				Table t = Bot.botTable(seats, 10, shoe);
+				t.setMetrics(metrics);
+				if(logs != null)
+					t.setHistory(HandLog.open(logs.resolve("table-" + id), 64 << 20, 0, t));
+				return t;
+			}
+		});
+		if(width > 0){
+			sim = sim.untilWidth(width).withProgress(new Progress(){
+				public void update(RunningStats estimate, long nanos){
+					System.out.println(String.format("%6.1fs  EV %s  width %.5f",
+						nanos / 1e9, estimate, estimate.width()));
+				}
+			}, 1000);
+		}
+		Report report = sim.run();
+		System.out.println(report);
+		System.out.println(report.outcomes());
+		System.out.println(metrics.snapshot());
+	}
+}
@@ -0,0 +1,428 @@
+package blackjack;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Works out the best play for every decision in a StrategyTable by
+ * computing expected values rather than by playing hands. For each dealer
+ * up card every hand the player could hold is followed, keyed on exactly
+ * which cards it holds, so every expected value is taken against the cards
+ * really left in the shoe. The EV of standing comes from DealerOdds, the EV
+ * of hitting is the average over every card that could be drawn of the best
+ * play afterwards, and doubling is twice the EV of standing after one more
+ * card. Splitting a pair is twice the EV of one hand holding one of the
+ * pair, dealt a second card and then played as well as possible, doubling
+ * only where the rules allow it after a split. Resplits are not followed.
+ * Each hand is solved once and remembered, since many orders of
+ * drawing lead to the same cards. The dealer plays by the rules given, and
+ * the first decision only doubles, splits or surrenders where those rules
+ * allow.
+ *
+ * A StrategyTable only sees the total, so the hands that share a total are
+ * weighed by how likely they are to be reached when playing the solved
+ * strategy, and the move with the best weighted EV is picked. The up cards
+ * are solved in parallel, each with its own DealerOdds.
+ */
+public final class StrategySolver{
+	private static final int CACHE_BITS = 20; //size of each DealerOdds cache
+	private static final int HIT = 0, STAND = 1, DOUBLE = 2, SPLIT = 3; //columns of the two card EV sums
+	private static final double SURRENDER_EV = -0.5;
+
+	private final int[] shoe; //cards of each value in the full shoe, indexed by value - 1
+	private final Rules rules;
+	private final int threads;
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code int[]}, {@code Rules}, {@code int}
+	 */
+	private StrategySolver(int[] shoe, Rules rules, int threads){
+		this.shoe = shoe;
+		this.rules = rules;
+		this.threads = threads;
+	}
+
+	//Static factory method, for the standard rules with the given number of decks
+	public static StrategySolver create(int decks, int threads){
+		return create(Rules.standard().withShoe(decks, Rules.standard().penetration()), threads);
+	}
+
+	/**
+	 * Static factory method
+	 * @param {@code Rules} -- the rules to solve, with the decks in the shoe
+	 * @param {@code int} -- up cards solved at once
+	 * @return {@code StrategySolver}
+	 */
+	public static StrategySolver create(Rules rules, int threads){
+		if(threads < 1)
+			throw new IllegalArgumentException("threads: " + threads);
+		Shoe s = Shoe.createShoe(rules.decks(), 1.0);
+		int[] counts = new int[Shoe.VALUES];
+		for(int v = 1; v <= Shoe.VALUES; ++v)
+			counts[v - 1] = s.remaining(v);
+		return new StrategySolver(counts, rules, threads);
+	}
+
+	/**
+	 * Solves every up card and builds the table
+	 * @return {@code StrategyTable}
+	 */
+	public StrategyTable solve() throws InterruptedException, ExecutionException{
+		final byte[] moves = new byte[StrategyTable.SIZE];
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for(int up = 1; up <= StrategyTable.UP_CARDS; ++up){
+				final int u = up;
+				futures.add(pool.submit(new Callable<Void>(){
+					public Void call(){
+						new UpCard(u).solve(moves);
+						return null;
+					}
+				}));
+			}
+			//each up card fills its own entries, the futures make them visible here
+			for(Future<?> f : futures)
+				f.get();
+		} finally{
+			pool.shutdown();
+		}
+		return StrategyTable.of(moves);
+	}
+
+	/**
+	 * Everything solved against one up card. Only used by the thread
+	 * solving that up card
+	 */
+	private final class UpCard{
+		private final int up;
+		private final DealerOdds odds = DealerOdds.create(CACHE_BITS, rules);
+		private final int[] left = new int[Shoe.VALUES];  //cards not in the players hand or the up card
+		private final int[] drawn = new int[Shoe.VALUES]; //cards in the players hand
+		private Map<Long, double[]> solved = new HashMap<Long, double[]>(); //stand and hit EV per hand, for the cards left
+
+		//weighted EV sums, indexed by pair, soft and total
+		private final double[][][] hitOverStand = new double[2][2][StrategyTable.TOTALS]; //every hand, without doubling
+		private final double[][][] weight = new double[2][2][StrategyTable.TOTALS];
+		private final double[][][][] twoCards = new double[2][2][StrategyTable.TOTALS][4]; //two card hands, doubling allowed
+		private final double[][][] twoCardWeight = new double[2][2][StrategyTable.TOTALS];
+
+		private UpCard(int up){
+			this.up = up;
+			for(int v = 0; v < Shoe.VALUES; ++v)
+				left[v] = shoe[v];
+			left[up - 1]--;
+		}
+
+		/**
+		 * Solves every hand against the up card and writes its moves
+		 * @param {@code byte[]}
+		 */
+		private void solve(byte[] moves){
+			int cards = 0;
+			for(int v = 0; v < Shoe.VALUES; ++v)
+				cards += left[v];
+			//the two card hands, weighed by how likely they are to be dealt
+			Map<Long, Double> layer = new HashMap<Long, Double>();
+			for(int a = 0; a < Shoe.VALUES; ++a)
+				for(int b = a; b < Shoe.VALUES; ++b){
+					double p = a == b
+						? (double) left[a] * (left[a] - 1) / ((double) cards * (cards - 1))
+						: 2.0 * left[a] * left[b] / ((double) cards * (cards - 1));
+					if(p == 0)
+						continue;
+					draw(a);
+					draw(b);
+					long key = pack(drawn);
+					undraw(b);
+					undraw(a);
+					layer.put(key, p);
+					twoCard(a, b, p);
+				}
+			//then every hand reached by hitting, one card at a time
+			while(!layer.isEmpty()){
+				Map<Long, Double> next = new HashMap<Long, Double>();
+				for(Map.Entry<Long, Double> e : layer.entrySet())
+					reach(e.getKey(), e.getValue(), next);
+				layer = next;
+			}
+			write(moves);
+		}
+
+		/**
+		 * Adds a two card hand to the sums of the decisions where doubling
+		 * is allowed
+		 * @param {@code int}, {@code int} -- the card values less one, {@code double} -- chance of the hand
+		 */
+		private void twoCard(int a, int b, double p){
+			draw(a);
+			draw(b);
+			int hard = a + b + 2;
+			boolean ace = a == 0 || b == 0;
+			boolean soft = ace && hard <= 11;
+			int best = soft ? hard + 10 : hard;
+			double[] ev = ev(hard, ace);
+			int pair = a == b ? 1 : 0;
+			int s = soft ? 1 : 0;
+			double[] sums = twoCards[pair][s][best];
+			sums[HIT] += p * ev[1];
+			sums[STAND] += p * ev[0];
+			sums[DOUBLE] += p * doubleEv(hard, ace);
+			if(pair == 1)
+				sums[SPLIT] += p * splitEv(a);
+			twoCardWeight[pair][s][best] += p;
+			undraw(b);
+			undraw(a);
+		}
+
+		/**
+		 * The EV of splitting the pair in {@code drawn}, for both hands. Each
+		 * hand is solved as one card of the pair and a second card, with the
+		 * other card of the pair still out of the shoe, so these hands are
+		 * remembered apart from the others
+		 * @param {@code int} -- value of the pair less one
+		 * @return {@code double}
+		 */
+		private double splitEv(int a){
+			Map<Long, double[]> unsplit = solved;
+			solved = new HashMap<Long, double[]>();
+			drawn[a]--; //the other card of the pair stays out of the shoe
+			double ev = 0;
+			int total = total();
+			for(int v = 0; v < Shoe.VALUES; ++v){
+				if(left[v] == 0)
+					continue;
+				double p = (double) left[v] / total;
+				draw(v);
+				int hard = a + v + 2;
+				boolean ace = a == 0 || v == 0;
+				double[] e = ev(hard, ace);
+				double hand = e[0];
+				if(a != 0 || rules.hitSplitAces()){
+					hand = Math.max(e[0], e[1]);
+					boolean soft = ace && hard <= 11;
+					if(rules.doubleAfterSplit() && rules.mayDouble(soft ? hard + 10 : hard, soft))
+						hand = Math.max(hand, doubleEv(hard, ace));
+				}
+				ev += p * hand;
+				undraw(v);
+			}
+			drawn[a]++;
+			solved = unsplit;
+			return 2 * ev;
+		}
+
+		/**
+		 * Adds a hand to the sums of the decisions without doubling, and
+		 * if the solved play is to hit, passes its chance on to every hand
+		 * one card bigger
+		 * @param {@code long} -- the packed cards, {@code double} -- chance of
+		 * reaching the hand, {@code Map<Long, Double>} -- the next layer
+		 */
+		private void reach(long key, double p, Map<Long, Double> next){
+			unpack(key, drawn);
+			int hard = 0, cards = 0;
+			boolean ace = drawn[0] > 0;
+			for(int v = 0; v < Shoe.VALUES; ++v){
+				hard += drawn[v] * (v + 1);
+				cards += drawn[v];
+				left[v] -= drawn[v];
+			}
+			boolean soft = ace && hard <= 11;
+			int best = soft ? hard + 10 : hard;
+			double[] ev = ev(hard, ace);
+			int pair = cards == 2 && (drawn[hard / 2 - 1] == 2) && hard % 2 == 0 ? 1 : 0;
+			int s = soft ? 1 : 0;
+			hitOverStand[pair][s][best] += p * (ev[1] - ev[0]);
+			weight[pair][s][best] += p;
+			if(ev[1] > ev[0]){
+				int total = total();
+				for(int v = 0; v < Shoe.VALUES; ++v){
+					if(left[v] == 0 || hard + v + 1 > 21)
+						continue;
+					drawn[v]++;
+					long k = pack(drawn);
+					drawn[v]--;
+					Double had = next.get(k);
+					next.put(k, (had == null ? 0 : had) + p * left[v] / total);
+				}
+			}
+			for(int v = 0; v < Shoe.VALUES; ++v){
+				left[v] += drawn[v];
+				drawn[v] = 0;
+			}
+		}
+
+		/**
+		 * The EV of standing and of hitting, then playing on as well as
+		 * possible without doubling, for the cards in {@code drawn}.
+		 * Solved once per hand and remembered
+		 * @param {@code int} -- hard total, {@code boolean} -- the hand has an ace
+		 * @return {@code double[]} -- stand EV, hit EV
+		 */
+		private double[] ev(int hard, boolean ace){
+			long key = pack(drawn);
+			double[] ev = solved.get(key);
+			if(ev != null)
+				return ev;
+			boolean soft = ace && hard <= 11;
+			int best = soft ? hard + 10 : hard;
+			double stand = DealerOdds.standEv(best, odds.distribution(up, left, true));
+			double hit = -1; //hitting 21 can only make it worse
+			if(best < 21){
+				hit = 0;
+				int total = total();
+				for(int v = 0; v < Shoe.VALUES; ++v){
+					if(left[v] == 0)
+						continue;
+					double p = (double) left[v] / total;
+					int h = hard + v + 1;
+					if(h > 21){
+						hit -= p;
+						continue;
+					}
+					draw(v);
+					double[] e = ev(h, ace || v == 0);
+					undraw(v);
+					hit += p * Math.max(e[0], e[1]);
+				}
+			}
+			ev = new double[]{stand, hit};
+			solved.put(key, ev);
+			return ev;
+		}
+
+		/**
+		 * The EV of doubling, one more card and then standing, with twice the bet
+		 * @param {@code int} -- hard total, {@code boolean} -- the hand has an ace
+		 * @return {@code double}
+		 */
+		private double doubleEv(int hard, boolean ace){
+			double ev = 0;
+			int total = total();
+			for(int v = 0; v < Shoe.VALUES; ++v){
+				if(left[v] == 0)
+					continue;
+				double p = (double) left[v] / total;
+				int h = hard + v + 1;
+				if(h > 21){
+					ev -= p;
+					continue;
+				}
+				draw(v);
+				ev += p * ev(h, ace || v == 0)[0];
+				undraw(v);
+			}
+			return 2 * ev;
+		}
+
+		//moves a card of the value(less one) from the shoe to the players hand
+		private void draw(int v){
+			left[v]--;
+			drawn[v]++;
+		}
+
+		//puts a card back
+		private void undraw(int v){
+			left[v]++;
+			drawn[v]--;
+		}
+
+		//number of cards left
+		private int total(){
+			int n = 0;
+			for(int v = 0; v < Shoe.VALUES; ++v)
+				n += left[v];
+			return n;
+		}
+
+		/**
+		 * Picks the move for every entry of this up card. Entries no hand
+		 * reached are hit below 17 and stood on above, pairs that cannot be
+		 * dealt play like their total, and decisions with doubling play like
+		 * those without when no two card hand has that total. Doubling,
+		 * splitting and surrender are only picked where the rules allow them
+		 * @param {@code byte[]}
+		 */
+		private void write(byte[] moves){
+			for(int pair = 0; pair < 2; ++pair)
+				for(int s = 0; s < 2; ++s)
+					for(int total = 0; total < StrategyTable.TOTALS; ++total){
+						Table.Move noDouble;
+						if(weight[pair][s][total] > 0)
+							noDouble = hitOverStand[pair][s][total] > 0 ? Table.Move.HIT : Table.Move.STAND;
+						else if(pair == 1 && weight[0][s][total] > 0)
+							noDouble = hitOverStand[0][s][total] > 0 ? Table.Move.HIT : Table.Move.STAND;
+						else
+							noDouble = total < 17 ? Table.Move.HIT : Table.Move.STAND;
+						Table.Move withDouble = noDouble;
+						if(twoCardWeight[pair][s][total] > 0){
+							double[] sums = twoCards[pair][s][total];
+							double best = Math.max(sums[HIT], sums[STAND]);
+							withDouble = sums[HIT] > sums[STAND] ? Table.Move.HIT : Table.Move.STAND;
+							if(rules.mayDouble(total, s == 1) && sums[DOUBLE] > best){
+								best = sums[DOUBLE];
+								withDouble = Table.Move.DOUBLE;
+							}
+							if(rules.surrender() && SURRENDER_EV * twoCardWeight[pair][s][total] > best){
+								best = SURRENDER_EV * twoCardWeight[pair][s][total];
+								withDouble = Table.Move.SURRENDER;
+							}
+							if(pair == 1 && rules.splitHands() > 1){
+								if(sums[SPLIT] > best)
+									withDouble = Table.Move.SPLIT;
+								if(sums[SPLIT] > Math.max(sums[HIT], sums[STAND]))
+									noDouble = Table.Move.SPLIT;
+							}
+						}
+						moves[StrategyTable.index(total, s == 1, pair == 1, false, up)] = (byte) noDouble.ordinal();
+						moves[StrategyTable.index(total, s == 1, pair == 1, true, up)] = (byte) withDouble.ordinal();
+					}
+		}
+	}
+
+	/**
+	 * Packs the cards of a hand into a long, six bits per count for aces
+	 * through nines and eight bits for tens, as DealerOdds does
+	 * @param {@code int[]}
+	 * @return {@code long}
+	 */
+	private static long pack(int[] counts){
+		long key = 0;
+		for(int v = 0; v < Shoe.VALUES - 1; ++v)
+			key = (key << 6) | counts[v];
+		return (key << 8) | counts[Shoe.VALUES - 1];
+	}
+
+	//unpacks a key made by pack
+	private static void unpack(long key, int[] counts){
+		counts[Shoe.VALUES - 1] = (int) (key & 0xff);
+		key >>>= 8;
+		for(int v = Shoe.VALUES - 2; v >= 0; --v){
+			counts[v] = (int) (key & 0x3f);
+			key >>>= 6;
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.StrategySolver [decks] [threads] [h17|s17]
+	 * Solves the shoe and shows the chart next to where it differs from
+	 * the basic chart
+	 */
+	public static void main(String[] args) throws Exception{
+		int decks = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		boolean h17 = args.length <= 2 || !args[2].equalsIgnoreCase("s17");
+		Rules rules = Rules.standard().withShoe(decks, Rules.standard().penetration()).withHitSoft17(h17);
+		long start = System.nanoTime();
+		StrategyTable solved = StrategySolver.create(rules, threads).solve();
+		System.out.println(String.format("Solved %s in %.2fs", rules, (System.nanoTime() - start) / 1e9));
+		System.out.println(solved);
+		int differ = 0;
+		for(int i = 0; i < StrategyTable.SIZE; ++i)
+			if(solved.move(i) != StrategyTable.basic().move(i))
+				differ++;
+		System.out.println("Entries that differ from the basic chart: " + differ + " of " + StrategyTable.SIZE);
+	}
+}
@@ -0,0 +1,217 @@
+package blackjack;
+
+/**
+ * A blackjack strategy held as a dense lookup table. Every decision is found
+ * by computing an index from the players total, whether the hand is soft,
+ * whether it is a pair, whether doubling is allowed and the value of the
+ * dealers face up card, then reading one entry of the table.
+ * @Immutable
+ */
+public final class StrategyTable{
+	public static final int TOTALS = 22;   //player totals 0 - 21
+	public static final int UP_CARDS = 10; //dealer up card values, ace through ten
+	static final int SIZE = 2 * 2 * 2 * TOTALS * UP_CARDS;
+
+	private static final Table.Move[] MOVES = Table.Move.values();
+	private static final String LETTERS = "HSDRP"; //letter of each move in the chart, by ordinal
+
+	//the chart for a shoe game where the dealer hits soft 17 and late surrender is offered, read once at class load
+	private static final StrategyTable BASIC = basicChart();
+
+	private final byte[] moves; //ordinal of the move for every index
+
+	/**
+	 * Private constructor, the table is not copied so it must not be
+	 * changed afterwards
+	 * @param {@code byte[]}
+	 */
+	private StrategyTable(byte[] moves){
+		this.moves = moves;
+	}
+
+	/**
+	 * Basic strategy for four or more decks where the dealer hits soft 17
+	 * and late surrender is offered, the rules of {@code Rules.standard()}.
+	 * A hand that may not surrender is played as it would be without
+	 * doubling, see {@code Bot}
+	 * @return {@code StrategyTable}
+	 */
+	public static StrategyTable basic(){
+		return BASIC;
+	}
+
+	/**
+	 * Static factory method for a table worked out elsewhere, such as by
+	 * the StrategySolver
+	 * @param {@code byte[]} -- ordinal of the move for every index, copied
+	 * @return {@code StrategyTable}
+	 */
+	static StrategyTable of(byte[] moves){
+		if(moves.length != SIZE)
+			throw new IllegalArgumentException("Expected " + SIZE + " moves: " + moves.length);
+		return new StrategyTable(moves.clone());
+	}
+
+	/**
+	 * Computes the table index for a decision
+	 * @param {@code int} -- best value of the players hand, at most 21
+	 * @param {@code boolean} -- the hand is soft
+	 * @param {@code boolean} -- the hand is a pair
+	 * @param {@code boolean} -- doubling is allowed
+	 * @param {@code int} -- value of the dealers up card, 1 for an ace
+	 * @return {@code int}
+	 */
+	public static int index(int total, boolean soft, boolean pair, boolean canDouble, int upValue){
+		int flags = (canDouble ? 4 : 0) | (pair ? 2 : 0) | (soft ? 1 : 0);
+		return (flags * TOTALS + total) * UP_CARDS + upValue - 1;
+	}
+
+	/**
+	 * The move for a table index
+	 * @param {@code int}
+	 * @return {@code Table.Move}
+	 */
+	public Table.Move move(int index){
+		return MOVES[moves[index]];
+	}
+
+	/**
+	 * The move to make with a hand against the dealers up card
+	 * @param {@code Hand}, {@code Card}, {@code boolean} -- doubling is allowed
+	 * @return {@code Table.Move}
+	 */
+	public Table.Move move(Hand hand, Card up, boolean canDouble){
+		return move(hand.packed(), up.cardValue(), canDouble, true);
+	}
+	
+	/**
+	 * The move to make with a hand against the dealers up card, a pair that
+	 * cannot be split is played by its total
+	 * @param {@code Hand}, {@code Card}
+	 * @param {@code boolean} -- doubling is allowed, {@code boolean} -- splitting is allowed
+	 * @return {@code Table.Move}
+	 */
+	public Table.Move move(Hand hand, Card up, boolean canDouble, boolean canSplit){
+		return move(hand.packed(), up.cardValue(), canDouble, canSplit);
+	}
+	
+	/**
+	 * The move to make with a packed hand, see PackedHand, against the value
+	 * of the dealers up card, a pair that cannot be split is played by its total
+	 * @param {@code long} -- the hand, {@code int} -- value of the up card, ace as 1
+	 * @param {@code boolean} -- doubling is allowed, {@code boolean} -- splitting is allowed
+	 * @return {@code Table.Move}
+	 */
+	public Table.Move move(long hand, int upValue, boolean canDouble, boolean canSplit){
+		return move(index(PackedHand.bestValue(hand), PackedHand.isSoft(hand),
+			canSplit && PackedHand.isPair(hand), canDouble, upValue));
+	}
+
+	/**
+	 * Builds the basic strategy chart. Each row lists the play against a
+	 * dealer 2, 3, 4, 5, 6, 7, 8, 9, 10 and ace.
+	 * H hit, S stand, D double or else hit, d double or else stand, P split,
+	 * R surrender or else hit, r surrender or else stand, and for a pair
+	 * R surrender or else split.
+	 * Totals not listed are hit below 12 and stood on from 17 up, pairs not
+	 * listed are played by their total. The pairs are split as where
+	 * doubling after a split is allowed
+	 */
+	private static StrategyTable basicChart(){
+		byte[] m = new byte[SIZE];
+		for(int soft = 0; soft < 2; ++soft)
+			for(int total = 0; total < TOTALS; ++total)
+				row(m, total, soft == 1, total < 17 ? "HHHHHHHHHH" : "SSSSSSSSSS");
+		row(m, 9, false,  "HDDDDHHHHH");
+		row(m, 10, false, "DDDDDDDDHH");
+		row(m, 11, false, "DDDDDDDDDD");
+		row(m, 12, false, "HHSSSHHHHH");
+		row(m, 13, false, "SSSSSHHHHH");
+		row(m, 14, false, "SSSSSHHHHH");
+		row(m, 15, false, "SSSSSHHHRR");
+		row(m, 16, false, "SSSSSHHRRR");
+		row(m, 17, false, "SSSSSSSSSr");
+		row(m, 13, true, "HHHDDHHHHH");
+		row(m, 14, true, "HHHDDHHHHH");
+		row(m, 15, true, "HHDDDHHHHH");
+		row(m, 16, true, "HHDDDHHHHH");
+		row(m, 17, true, "HDDDDHHHHH");
+		row(m, 18, true, "dddddSSHHH");
+		row(m, 19, true, "SSSSdSSSSS");
+		pairRow(m, 12, true,  "PPPPPPPPPP"); //aces
+		pairRow(m, 4, false,  "PPPPPPHHHH");
+		pairRow(m, 6, false,  "PPPPPPHHHH");
+		pairRow(m, 8, false,  "HHHPPHHHHH");
+		pairRow(m, 12, false, "PPPPPHHHHH");
+		pairRow(m, 14, false, "PPPPPPHHHH");
+		pairRow(m, 16, false, "PPPPPPPPPR");
+		pairRow(m, 18, false, "PPPPPSPPSS");
+		return new StrategyTable(m);
+	}
+
+	/**
+	 * Fills one row of the chart for every pair and doubling combination,
+	 * pairs are played by their total unless {@code pairRow} says otherwise
+	 * @param {@code byte[]}, {@code int}, {@code boolean}, {@code String}
+	 */
+	private static void row(byte[] m, int total, boolean soft, String plays){
+		for(int i = 0; i < UP_CARDS; ++i){
+			int up = i == UP_CARDS - 1 ? 1 : i + 2;
+			char c = plays.charAt(i);
+			Table.Move withDouble = c == 'H' ? Table.Move.HIT : c == 'S' ? Table.Move.STAND
+				: c == 'R' || c == 'r' ? Table.Move.SURRENDER : Table.Move.DOUBLE;
+			Table.Move noDouble = c == 'S' || c == 'd' || c == 'r' ? Table.Move.STAND : Table.Move.HIT;
+			for(int pair = 0; pair < 2; ++pair){
+				m[index(total, soft, pair == 1, true, up)] = (byte) withDouble.ordinal();
+				m[index(total, soft, pair == 1, false, up)] = (byte) noDouble.ordinal();
+			}
+		}
+	}
+
+	/**
+	 * Fills the pair entries of one row with the pairs that are split, or
+	 * surrendered and else split, the other plays are left as the total has them
+	 * @param {@code byte[]}, {@code int}, {@code boolean}, {@code String}
+	 */
+	private static void pairRow(byte[] m, int total, boolean soft, String plays){
+		for(int i = 0; i < UP_CARDS; ++i){
+			char c = plays.charAt(i);
+			if(c != 'P' && c != 'R')
+				continue;
+			int up = i == UP_CARDS - 1 ? 1 : i + 2;
+			m[index(total, soft, true, true, up)] = (byte) (c == 'R' ? Table.Move.SURRENDER : Table.Move.SPLIT).ordinal();
+			m[index(total, soft, true, false, up)] = (byte) Table.Move.SPLIT.ordinal();
+		}
+	}
+
+	/**
+	 * A representation of the chart, one line per total with the plays
+	 * against a dealer 2 through ace, doubling allowed, then one line per
+	 * pair. R is surrender, P split
+	 * @return {@code String}
+	 */
+	@Override public String toString(){
+		StringBuilder sb = new StringBuilder();
+		for(int soft = 0; soft < 2; ++soft)
+			for(int total = 4; total < TOTALS; ++total){
+				if(soft == 1 && total < 12)
+					continue;
+				sb.append(soft == 1 ? "Soft " : "Hard ").append(total).append(":\t");
+				for(int i = 0; i < UP_CARDS; ++i)
+					sb.append(LETTERS.charAt(moves[index(total, soft == 1, false, true, i == UP_CARDS - 1 ? 1 : i + 2)]));
+				sb.append("\n");
+			}
+		for(int v = 1; v <= UP_CARDS; ++v){
+			int total = v == 1 ? 12 : 2 * v;
+			sb.append("Pair ").append(v == 1 ? "A" : String.valueOf(v)).append(":\t");
+			for(int i = 0; i < UP_CARDS; ++i)
+				sb.append(LETTERS.charAt(moves[index(total, v == 1, true, true, i == UP_CARDS - 1 ? 1 : i + 2)]));
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	public static void main(String[] args){
+		System.out.println(StrategyTable.basic());
+	}
+}
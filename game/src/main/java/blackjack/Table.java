@@ -0,0 +1,1016 @@
+package blackjack;
+
+import java.io.*;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a table to play blackjack. The table has a dealer and one to
+ * seven seats, each with a player, and it manages the game play. A round
+ * deals every seat at once, plays each seat in turn, then plays the dealer
+ * once and settles every hand that is still in. Everything that happens is
+ * passed to the tables GameListener as a GameEvent, the table itself never
+ * writes to the console.
+ *
+ * A seat can split its hand into up to {@code Rules.MAX_SPLIT_HANDS} hands,
+ * each with its own bet. The first hand of a seat is the players own, the
+ * others come from a pool of hands made with the table and reused every
+ * round, so splitting makes no garbage.
+ *
+ * A table, its dealer, players and hands are only ever used by the thread
+ * playing the table, so none of them take locks. Other threads, such as a
+ * server reporting on its sessions, read {@code snapshot()}: at the end of
+ * every round the table copies the pots and outcomes of its seats into a
+ * few fields guarded by a sequence number, which is odd while they are
+ * being written. A reader copies the fields and tries again if the number
+ * was odd or changed meanwhile, so the table never waits on a reader.
+ */
+
+public class Table{
+	public static final int MAX_SEATS = 7;
+	
+	private static final byte SETTLED = 0, PLAYING = 1, STOOD = 2; //states of a hand during a round
+	private static final Move[] MOVES = Move.values();
+	
+	private final Player[] players; //The players at the table, one per seat
+	private Dealer dealer;  //The dealer at the table
+	private final Rules rules; //The rules the table plays by
+	private int pot;        //The tables pot, the bets in play
+	
+	private final PlayerStrategy[] strategies; //makes each players choices, null for console play
+	private final Scanner scan;            //scanner to get user input, null when headless
+	private final Outcome[] lastOutcomes;  //how the last hand played at each seat ended
+	private final int[] bets;              //bets of the round being started
+	private final Hand[][] hands;          //the hands of each seat, the first is the players own
+	private final int[][] handBets;        //the bet on each hand
+	private final byte[][] states;         //where each hand is in the round
+	private final int[] handCount;         //hands each seat is playing
+	private final int[] current;           //the hand of each seat being played
+	private final int[] committed;         //money each seat has bet this round, over all its hands
+	private final boolean[] splitAces;     //the seat split aces this round
+	private final Hand[] pool;             //hands to split into, reused every round
+	private int pooled;                    //hands taken from the pool this round
+	private int turn = -1;                 //the seat to move, -1 when no seat is
+	private Metrics metrics;               //records every hand, null when not measured
+	private OutcomeHistogram outcomes;     //counts every settled hand, null when not counted
+	private long handStart;                //when the current round started, only kept with metrics
+	private GameListener listener;         //receives the events of the table
+	private EventBus.Publisher events;     //publishes the events of the table to a bus, null when not
+	private HandLog history;               //logs every hand, null when not logged
+	private long handSeed;                 //shuffle seed of the shoe when the hand started
+	private int handPosition;              //cards dealt from the shoe before the hand
+	private int potBefore;                 //the players pot before the bet
+	private int handBet;                   //the bet of the hand, after it was capped at the pot
+	private final byte[] moves;            //moves made in the first seat, kept with a log
+	private int moveCount;
+	private boolean scripted;              //the first seat doubled or split, so its moves are logged
+	private Card up;                       //the dealers face up card this round
+	
+	private final AtomicLong sequence = new AtomicLong(); //odd while a round is being published
+	private long rounds;                   //rounds played, published with the fields below
+	private final int[] shownPots;         //the pot of each seat at the end of the last round
+	private final Outcome[] shownOutcomes; //how the last round ended at each seat
+	
+	/**
+	 * The possible moves a player can make
+	 * HIT makes the player ask for another card
+	 * STAND ends the players turn and the turn 
+	 * switches to the dealer
+	 * DOUBLE doubles the bet on a two card hand,
+	 * which gets exactly one more card
+	 * SURRENDER gives up the hand for half the bet,
+	 * only as the first move and when the rules
+	 * offer it
+	 * SPLIT allows you to split your hand, only
+	 * allowed if the two cards in the hand have
+	 * the same value. Splits the cards into two
+	 * hands, each with the same bet, and allows
+	 * you to play each hand
+	 */
+	public enum Move{
+		HIT, STAND, DOUBLE, SURRENDER, SPLIT;
+	}
+	
+	/**
+	 * The ways a hand can end, from the players point of view
+	 */
+	public enum Outcome{
+		WIN, BLACKJACK, LOSS, PUSH, SURRENDER;
+	}
+	
+	//private constructor is used in the factory method.
+	private Table(Player[] players, Dealer dealer, Rules rules, PlayerStrategy[] strategies, Scanner scan, GameListener listener){
+		this.players = players;
+		this.dealer = dealer;
+		this.rules = rules;
+		this.strategies = strategies;
+		this.scan = scan;
+		this.listener = listener;
+		int n = players.length;
+		moves = new byte[rules.maxMoves()];
+		lastOutcomes = new Outcome[n];
+		shownPots = new int[n];
+		shownOutcomes = new Outcome[n];
+		bets = new int[n];
+		hands = new Hand[n][Rules.MAX_SPLIT_HANDS];
+		handBets = new int[n][Rules.MAX_SPLIT_HANDS];
+		states = new byte[n][Rules.MAX_SPLIT_HANDS];
+		handCount = new int[n];
+		current = new int[n];
+		committed = new int[n];
+		splitAces = new boolean[n];
+		pool = new Hand[n * (Rules.MAX_SPLIT_HANDS - 1)];
+		for(int i = 0; i < pool.length; ++i)
+			pool[i] = Hand.newHand();
+		for(int s = 0; s < n; ++s){
+			hands[s][0] = players[s].viewHand();
+			shownPots[s] = players[s].getPot();
+		}
+	}
+	
+	//Makes a player join a table
+	public static Table createTable(Player player){
+		return createTable(player, null);
+	}
+	
+	/**
+	 * Makes a player join a table where every bet and move is made by
+	 * the given strategy. Nothing is read from or written to the console,
+	 * events are ignored until a listener is set
+	 * @param {@code Player}, {@code PlayerStrategy}
+	 * @return {@code Table}
+	 */
+	public static Table createTable(Player player, PlayerStrategy strategy){
+		return createTable(player, strategy, Shoe.createShoe(1, 1.0));
+	}
+	
+	/**
+	 * Makes a player join a table dealt from the given shoe, played by the
+	 * standard rules
+	 * @param {@code Player}, {@code PlayerStrategy} -- null for console play, {@code Shoe}
+	 * @return {@code Table}
+	 */
+	public static Table createTable(Player player, PlayerStrategy strategy, Shoe shoe){
+		return createTable(player, strategy, shoe, Rules.standard());
+	}
+	
+	/**
+	 * Makes a player join a table dealt from the given shoe and played by
+	 * the given rules
+	 * @param {@code Player}, {@code PlayerStrategy} -- null for console play
+	 * @param {@code Shoe}, {@code Rules}
+	 * @return {@code Table}
+	 */
+	public static Table createTable(Player player, PlayerStrategy strategy, Shoe shoe, Rules rules){
+		if(strategy == null)
+			return seat(new Player[]{player}, new PlayerStrategy[1], new Scanner(System.in),
+				ConsoleRenderer.create(System.out), shoe, rules);
+		return seat(new Player[]{player}, new PlayerStrategy[]{strategy}, null, GameListener.NONE, shoe, rules);
+	}
+	
+	//Seats several players at a headless table played by the standard rules
+	public static Table createTable(Player[] players, PlayerStrategy[] strategies, Shoe shoe){
+		return createTable(players, strategies, shoe, Rules.standard());
+	}
+	
+	/**
+	 * Seats several players at a headless table dealt from the given shoe,
+	 * seat i is played by strategy i
+	 * @param {@code Player[]}, {@code PlayerStrategy[]} -- one each per seat, 1 to 7 seats
+	 * @param {@code Shoe}, {@code Rules}
+	 * @return {@code Table}
+	 */
+	public static Table createTable(Player[] players, PlayerStrategy[] strategies, Shoe shoe, Rules rules){
+		if(players.length < 1 || players.length > MAX_SEATS || strategies.length != players.length)
+			throw new IllegalArgumentException("Need 1 to " + MAX_SEATS + " players, each with a strategy: "
+				+ players.length + " players, " + strategies.length + " strategies");
+		for(PlayerStrategy s : strategies)
+			if(s == null)
+				throw new IllegalArgumentException("Every seat needs a strategy");
+		return seat(players.clone(), strategies.clone(), null, GameListener.NONE, shoe, rules);
+	}
+	
+	/**
+	 * Makes a player join a table played by a person, reading the players
+	 * answers from the scanner and passing everything that happens to the
+	 * listener. Used for players that are not at the console
+	 * @param {@code Player}, {@code Scanner}, {@code GameListener}, {@code Shoe}
+	 * @return {@code Table}
+	 */
+	public static Table createTable(Player player, Scanner in, GameListener listener, Shoe shoe){
+		return seat(new Player[]{player}, new PlayerStrategy[1], in, listener, shoe, Rules.standard());
+	}
+	
+	/**
+	 * Creates the dealer and seats the players. The tables rules take the
+	 * decks and penetration of the shoe it is actually dealt from
+	 */
+	private static Table seat(Player[] players, PlayerStrategy[] strategies, Scanner in, GameListener listener,
+			Shoe shoe, Rules rules){
+		if(rules.decks() != shoe.decks() || rules.penetration() != shoe.penetration())
+			rules = rules.withShoe(shoe.decks(), shoe.penetration());
+		Dealer dealer = Dealer.startGame(Hand.newHand(), shoe);
+		dealer.setPlayers(players);
+		Table t = new Table(players, dealer, rules, strategies, in, listener);
+		for(Player p : players){
+			p.setDealer(dealer);
+			p.sitAtTable(t);
+		}
+		return t;
+	}
+	
+	//Creates a headless table for a new player, played by the strategy
+	public static Table headlessTable(PlayerStrategy strategy, Shoe shoe){
+		Player player = Player.joinGame(Hand.newHand(), 500);
+		return createTable(player, strategy, shoe);
+	}
+	
+	//Creates a new game to begin playing at
+	public static Table newTable(){
+		Player player = Player.joinGame(Hand.newHand(), 500);
+		return createTable(player);
+	}
+	
+	//Changes the amount in the pot
+	public void setPot(int pot){
+		this.pot = pot;
+	}
+	
+	//Gets the value in the tables pot
+	public int getPot(){
+		return pot;
+	}
+	
+	//The player sitting in the first seat
+	public Player getPlayer(){
+		return players[0];
+	}
+	
+	//The player sitting in a seat
+	public Player getPlayer(int seat){
+		return players[seat];
+	}
+	
+	//Number of seats at the table
+	public int seats(){
+		return players.length;
+	}
+	
+	//The dealer of the table
+	public Dealer getDealer(){
+		return dealer;
+	}
+	
+	//The rules the table plays by
+	public Rules getRules(){
+		return rules;
+	}
+	
+	/**
+	 * Records every hand played at this table, and every card its dealer
+	 * deals, into the given metrics. Null stops recording
+	 * @param {@code Metrics}
+	 */
+	public void setMetrics(Metrics metrics){
+		this.metrics = metrics;
+		dealer.setMetrics(metrics);
+	}
+	
+	/**
+	 * Counts every hand settled at this table into the given histogram,
+	 * which only this table may record into. Null stops counting
+	 * @param {@code OutcomeHistogram}
+	 */
+	public void setOutcomes(OutcomeHistogram outcomes){
+		this.outcomes = outcomes;
+	}
+	
+	/**
+	 * Logs every hand played at this table into the given log, which is
+	 * closed along with the table. Null stops logging. Only a table with a
+	 * single seat can be logged, the log holds one player per hand
+	 * @param {@code HandLog} -- a log opened for this table
+	 */
+	public void setHistory(HandLog history){
+		if(history != null && players.length > 1)
+			throw new IllegalStateException("Only a table with one seat can be logged: " + players.length + " seats");
+		this.history = history;
+	}
+	
+	/**
+	 * Sets the listener that receives the events of the table, replacing
+	 * the console renderer or the listener set before
+	 * @param {@code GameListener} -- {@code GameListener.NONE} to ignore events
+	 */
+	public void setListener(GameListener listener){
+		this.listener = listener;
+	}
+	
+	/**
+	 * Publishes the events of the table to a bus as well as passing them to
+	 * the listener. Publishing fills a slot of the ring, so it makes no
+	 * garbage, and only waits when a handler of the bus is a ring behind.
+	 * Null stops publishing
+	 * @param {@code EventBus.Publisher} -- a ring of the bus, used only by this table
+	 */
+	public void setEvents(EventBus.Publisher events){
+		this.events = events;
+	}
+	
+	/**
+	 * Passes an event to the listener and the bus. No event is created when
+	 * the listener ignores them
+	 * @param {@code GameEvent.Type}, {@code int} -- seat, {@code int} -- card code, {@code int} -- value
+	 */
+	private void emit(GameEvent.Type type, int seat, int card, int value){
+		if(events != null)
+			events.publish(rounds, type, seat, card, value);
+		if(listener != GameListener.NONE)
+			listener.onEvent(GameEvent.of(type, seat, card, value));
+	}
+	
+	//Asks the player a question
+	private void prompt(String text){
+		if(listener != GameListener.NONE)
+			listener.onEvent(GameEvent.prompt(text));
+	}
+	
+	//How the most recently played hand at the first seat ended, null before the first hand
+	public Outcome lastOutcome(){
+		return lastOutcomes[0];
+	}
+	
+	/**
+	 * How the most recently played hand at a seat ended, null before the
+	 * first hand. When the seat split, this is how its first hand ended
+	 * @param {@code int} -- the seat
+	 * @return {@code Outcome}
+	 */
+	public Outcome lastOutcome(int seat){
+		return lastOutcomes[seat];
+	}
+	
+	//The seat that has to move, -1 when no hand is waiting on a move
+	public int turn(){
+		return turn;
+	}
+	
+	//The hand waiting on a move, null when no hand is
+	public Hand currentHand(){
+		return turn < 0 ? null : hands[turn][current[turn]];
+	}
+	
+	/**
+	 * Whether the hand waiting on a move may double, it has two cards, the
+	 * rules allow doubling its total and after a split if it is one, and the
+	 * player has the money to double the bet
+	 * @return {@code boolean}
+	 */
+	public boolean canDouble(){
+		if(turn < 0)
+			return false;
+		int s = turn, h = current[s];
+		Hand hand = hands[s][h];
+		return hand.size() == 2 && rules.mayDouble(hand.bestValue(), hand.isSoft())
+			&& (handCount[s] == 1 || rules.doubleAfterSplit())
+			&& (!splitAces[s] || rules.hitSplitAces())
+			&& affords(s, handBets[s][h]);
+	}
+	
+	/**
+	 * Whether the hand waiting on a move may split, it is a pair, the seat
+	 * has fewer hands than the rules allow, aces are only split again where
+	 * the rules allow it, and the player has the money for another bet
+	 * @return {@code boolean}
+	 */
+	public boolean canSplit(){
+		if(turn < 0)
+			return false;
+		int s = turn, h = current[s];
+		Hand hand = hands[s][h];
+		return hand.isPair() && handCount[s] < rules.splitHands()
+			&& (!splitAces[s] || rules.resplitAces())
+			&& affords(s, handBets[s][h]);
+	}
+	
+	//Whether the hand waiting on a move may surrender, as the first move of an unsplit hand where the rules offer it
+	public boolean canSurrender(){
+		return turn >= 0 && rules.surrender() && handCount[turn] == 1 && hands[turn][0].size() == 2;
+	}
+	
+	//Whether the player in a seat has the money to bet this much more this round
+	private boolean affords(int seat, int more){
+		return committed[seat] + more <= players[seat].getPot();
+	}
+	
+	@Override public String toString(){
+		StringBuilder sb = new StringBuilder();
+		sb.append("------------------------------\n");
+		for(Player p : players){
+			sb.append(p);
+			sb.append("\n");
+		}
+		sb.append("\n\nDealer card:\n");
+		sb.append(dealer.displayPlayerView());
+		sb.append("------------------------------\n");
+		return sb.toString();
+	}
+	
+	/**
+	 * Gets player input and returns an enum based
+	 * on the players response
+	 * @param {@code int} -- the seat
+	 * @return Moves
+	 */
+	private Move getPlayerResponse(int seat){
+		if(strategies[seat] != null)
+			return strategies[seat].nextMove(hands[seat][current[seat]], up);
+		String choice = "";
+		prompt("Please make a choice:\nHit\nStand" + (canDouble() ? "\nDouble" : "")
+			+ (canSplit() ? "\nSplit" : "") + (canSurrender() ? "\nSurrender" : ""));
+		while(true){
+			choice = scan.nextLine().trim().toLowerCase();
+			if(choice.startsWith("su"))
+				return Move.SURRENDER;
+			if(choice.startsWith("sp"))
+				return Move.SPLIT;
+			//a blank line falls through to the default and is asked again
+			switch(choice.isEmpty() ? ' ' : choice.charAt(0)){
+				case 'h':
+					return Move.HIT;
+				case 's':
+					return Move.STAND;
+				case 'd':
+					return Move.DOUBLE;
+				default:
+					prompt("Please choose one of the following:\n\tHit\n\tStand\n\tDouble\n\tSplit\n\tSurrender");
+					continue;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Makes one move for the player in the first seat, see {@code applyMove(int, Move)}
+	 * @param {@code Move}
+	 * @return {@code boolean} -- true while the player still has to move
+	 */
+	public boolean applyMove(Move move){
+		return applyMove(0, move);
+	}
+	
+	/**
+	 * Makes one move for the hand being played in a seat. The hand keeps its
+	 * own best value, with an ace counted as eleven whenever that does not
+	 * take the hand over 21, so nothing is recounted between moves. If a hit
+	 * takes the hand over 21 the player has busted and the hand is settled, a
+	 * stand ends the hand. A double doubles the bet and deals the hand one
+	 * last card. A split moves the second card of a pair to a new hand with
+	 * the same bet, each hand then gets a second card when it is played, and
+	 * split aces get only that card unless the rules say otherwise. A
+	 * surrender settles the hand for half the bet. Double, split and
+	 * surrender are only made where {@code canDouble}, {@code canSplit} and
+	 * {@code canSurrender} allow, otherwise the hand is left as it is. Once
+	 * every hand of every seat has been played the dealer plays and the hands
+	 * that stood are settled.
+	 * @param {@code int} -- the seat, must be the one whose turn it is
+	 * @param {@code Move}
+	 * @return {@code boolean} -- true while the seat still has to move
+	 * @throws {@code IllegalStateException} if it is not the seats turn
+	 */
+	public boolean applyMove(int seat, Move move){
+		if(seat != turn)
+			throw new IllegalStateException("Seat " + seat + " is not to move, seat " + turn + " is");
+		int h = current[seat];
+		Hand hand = hands[seat][h];
+		if(splitAces[seat] && !rules.hitSplitAces() && move != Move.SPLIT)
+			move = Move.STAND; //a split ace that could be split again takes no more cards
+		switch(move){
+			case HIT:
+				record(seat, move);
+				Card c = dealTo(hand);
+				emit(GameEvent.Type.HIT, seat, c.code(), hand.bestValue());
+				if(!hand.isBust())
+					return true;
+				bust(seat, h);
+				return nextHand(seat);
+			case STAND:
+				record(seat, move);
+				stand(seat, h);
+				return nextHand(seat);
+			case DOUBLE:
+				if(!canDouble())
+					return true;
+				record(seat, move);
+				raise(seat, h, handBets[seat][h]);
+				c = dealTo(hand);
+				emit(GameEvent.Type.DOUBLE, seat, c.code(), hand.bestValue());
+				if(hand.isBust())
+					bust(seat, h);
+				else
+					states[seat][h] = STOOD;
+				return nextHand(seat);
+			case SURRENDER:
+				if(!canSurrender())
+					return true;
+				record(seat, move);
+				surrendered(seat, h);
+				return nextHand(seat);
+			case SPLIT:
+				if(!canSplit())
+					return true;
+				record(seat, move);
+				split(seat, h);
+				return secondCard(seat);
+			default:
+				return true;
+		}
+	}
+	
+	//Keeps a move made in the first seat, for the log
+	private void record(int seat, Move move){
+		if(history == null || seat != 0)
+			return;
+		if(moveCount == moves.length)
+			throw new IllegalStateException("More than " + moves.length + " moves in one round, the rules allow no more");
+		moves[moveCount++] = (byte) move.ordinal();
+		scripted |= move == Move.DOUBLE || move == Move.SPLIT;
+	}
+	
+	//Deals the next card from the shoe to a hand
+	private Card dealTo(Hand hand){
+		Card c = dealer.dealNext();
+		hand.addCard(c);
+		return c;
+	}
+	
+	//Adds to the bet on a hand, for a double or a split
+	private void raise(int seat, int h, int more){
+		handBets[seat][h] += more;
+		committed[seat] += more;
+		players[seat].raise(more);
+	}
+	
+	//Settles a hand that went over 21
+	private void bust(int seat, int h){
+		Hand hand = hands[seat][h];
+		emit(GameEvent.Type.BUST, seat, GameEvent.NO_CARD, hand.bestValue());
+		if(metrics != null)
+			metrics.playerBust();
+		lost(seat, h);
+	}
+	
+	//Ends a hand that will be settled against the dealer
+	private void stand(int seat, int h){
+		emit(GameEvent.Type.STAND, seat, GameEvent.NO_CARD, hands[seat][h].bestValue());
+		states[seat][h] = STOOD;
+	}
+	
+	/**
+	 * Splits a pair, the second card goes to a hand taken from the pool,
+	 * which is played after the hands the seat already has
+	 * @param {@code int} -- the seat, {@code int} -- the hand being split
+	 */
+	private void split(int seat, int h){
+		Hand hand = hands[seat][h];
+		Hand next = pool[pooled++];
+		next.bust();
+		Card moved = hand.removeLast();
+		next.addCard(moved);
+		int n = handCount[seat]++;
+		hands[seat][n] = next;
+		handBets[seat][n] = 0;
+		states[seat][n] = PLAYING;
+		raise(seat, n, handBets[seat][h]);
+		splitAces[seat] |= Card.isAce(moved.code());
+		emit(GameEvent.Type.SPLIT, seat, moved.code(), handCount[seat]);
+	}
+	
+	/**
+	 * Deals the second card to the hand being played in a seat that split.
+	 * Split aces that cannot be split again stand on it, unless the rules
+	 * let them be hit
+	 * @param {@code int} -- the seat
+	 * @return {@code boolean} -- true while the seat still has to move
+	 */
+	private boolean secondCard(int seat){
+		int h = current[seat];
+		Hand hand = hands[seat][h];
+		Card c = dealTo(hand);
+		emit(GameEvent.Type.DEAL, seat, c.code(), hand.bestValue());
+		if(splitAces[seat] && !rules.hitSplitAces() && !canSplit()){
+			stand(seat, h);
+			return nextHand(seat);
+		}
+		return true;
+	}
+	
+	/**
+	 * Moves on to the next hand of a seat that split, or to the next seat
+	 * once every hand of this one has been played
+	 * @param {@code int} -- the seat
+	 * @return {@code boolean} -- true while the seat still has to move
+	 */
+	private boolean nextHand(int seat){
+		if(++current[seat] < handCount[seat]){
+			Hand hand = hands[seat][current[seat]];
+			emit(GameEvent.Type.HAND, seat, hand.cardAt(0).code(), current[seat]);
+			return secondCard(seat);
+		}
+		nextTurn();
+		return false;
+	}
+	
+	//Passes the turn to the next seat still playing, or to the dealer once there is none
+	private void nextTurn(){
+		for(int s = turn + 1; s < players.length; ++s)
+			if(states[s][0] == PLAYING){
+				turn = s;
+				return;
+			}
+		turn = -1;
+		finishRound();
+	}
+	
+	/**
+	 * The dealer follows a fairly simple algorithm to determine what it's
+	 * move will be, hitting until {@code Rules.dealerStands} says otherwise,
+	 * which depends on whether the dealer hits soft 17. Returns -1 if the
+	 * dealer busts
+	 */
+	 private int dealerTurn(){
+		Hand hand = dealer.viewHand();
+		revealHole();
+		while(!hand.isBust() && !rules.dealerStands(hand.bestValue(), hand.isSoft())){
+			Card c = dealer.hit();
+			emit(GameEvent.Type.HIT, GameEvent.DEALER, c.code(), hand.bestValue());
+		}
+		if(hand.isBust()){
+			emit(GameEvent.Type.BUST, GameEvent.DEALER, GameEvent.NO_CARD, hand.bestValue());
+			return -1;
+		}
+		emit(GameEvent.Type.STAND, GameEvent.DEALER, GameEvent.NO_CARD, hand.bestValue());
+		return hand.bestValue();
+	}
+	
+	//Turns over the dealers face down card
+	private void revealHole(){
+		Hand hand = dealer.viewHand();
+		emit(GameEvent.Type.HOLE, GameEvent.DEALER, hand.cardAt(1).code(), hand.bestValue());
+	}
+	
+	//Tells the listener about the opening deal, every players cards and the dealers face up card
+	private void emitDeal(){
+		if(listener == GameListener.NONE && events == null)
+			return;
+		for(int s = 0; s < players.length; ++s){
+			Hand hand = players[s].viewHand();
+			for(int i = 0, n = hand.size(); i < n; ++i)
+				emit(GameEvent.Type.DEAL, s, hand.cardAt(i).code(), hand.bestValue());
+		}
+		emit(GameEvent.Type.DEAL, GameEvent.DEALER, up.code(), up.cardValue());
+	}
+	
+	/**
+	 * This method plays a single round. It first takes a bet from every seat, then deals the cards.
+	 * After the cards are dealt, determines whether any player or the dealer has gotten black jack,
+	 * those hands are settled right away. Every other seat then takes its turn, followed by the
+	 * dealers turn. The shoe is reshuffled before the bets if the cut card has
+	 * been reached, so the bets see the counts of the shoe they are dealt from.
+	 * The outcome of each seat is kept and can be read with {@code lastOutcome(int)}
+	 */
+	public void playHand(){
+		dealer.newDeck();
+		for(int s = 0; s < players.length; ++s)
+			bets[s] = getPlayerBet(s);
+		if(beginRound(bets))
+			while(turn >= 0)
+				applyMove(turn, getPlayerResponse(turn));
+	}
+	
+	/**
+	 * Starts a round where every seat bets the same, see {@code beginRound}
+	 * @param {@code int} -- the bet
+	 * @return {@code boolean} -- true if a player has to move
+	 */
+	public boolean beginHand(int bet){
+		Arrays.fill(bets, bet);
+		return beginRound(bets);
+	}
+	
+	/**
+	 * Starts a round, takes the bets and deals the cards. If the dealer has
+	 * black jack every seat is settled right away, otherwise every seat with
+	 * black jack is. Together with {@code applyMove} this lets a round be
+	 * played one step at a time, by something that gets the players moves as
+	 * they come in rather than asking for them
+	 * @param {@code int[]} -- the bet of each seat
+	 * @return {@code boolean} -- true if a player has to move, {@code turn()} says which
+	 */
+	public boolean beginRound(int[] bets){
+		if(metrics != null)
+			handStart = System.nanoTime();
+		dealer.newDeck();
+		if(history != null){
+			handSeed = dealer.viewShoe().shuffleSeed();
+			handPosition = dealer.viewShoe().position();
+			potBefore = players[0].getPot();
+			moveCount = 0;
+			scripted = false;
+		}
+		pooled = 0;
+		for(int s = 0; s < players.length; ++s){
+			players[s].placeBet(bets[s]);
+			emit(GameEvent.Type.BET, s, GameEvent.NO_CARD, players[s].getBet());
+			players[s].viewHand().bust();
+			handCount[s] = 1;
+			current[s] = 0;
+			handBets[s][0] = committed[s] = players[s].getBet();
+			splitAces[s] = false;
+		}
+		handBet = players[0].getBet();
+		dealer.viewHand().bust();
+		dealer.deal();
+		up = dealer.displayPlayerView();
+		emitDeal();
+		//Check for wins/ties with black jacks
+		boolean dealerBlackjack = dealer.viewHand().isBlackjack();
+		if(dealerBlackjack)
+			revealHole();
+		turn = -1;
+		for(int s = players.length - 1; s >= 0; --s){
+			boolean playerBlackjack = players[s].viewHand().isBlackjack();
+			states[s][0] = PLAYING;
+			if(!playerBlackjack && !dealerBlackjack)
+				turn = s;
+		}
+		for(int s = 0; s < players.length; ++s){
+			boolean playerBlackjack = players[s].viewHand().isBlackjack();
+			if(playerBlackjack && dealerBlackjack)
+				push(s, 0);
+			else if(playerBlackjack)
+				won(s, 0, true);
+			else if(dealerBlackjack)
+				lost(s, 0);
+		}
+		if(turn < 0)
+			endRound(false);
+		return turn >= 0;
+	}
+	
+	/**
+	 * Plays the dealers turn once every seat has had its turn and settles
+	 * the hands that stood. The dealer does not draw if no hand stood
+	 */
+	private void finishRound(){
+		boolean stood = false;
+		for(int s = 0; s < players.length; ++s)
+			for(int h = 0; h < handCount[s]; ++h)
+				stood |= states[s][h] == STOOD;
+		int dealerHand = 0;
+		if(stood){
+			dealerHand = dealerTurn();
+			for(int s = 0; s < players.length; ++s)
+				for(int h = 0; h < handCount[s]; ++h){
+					if(states[s][h] != STOOD)
+						continue;
+					int playerHand = hands[s][h].bestValue();
+					if(dealerHand == -1)
+						won(s, h, false);
+					else if(dealerHand < playerHand)
+						won(s, h, false);
+					else if(dealerHand > playerHand)
+						lost(s, h);
+					else
+						push(s, h);
+				}
+		}
+		endRound(dealerHand == -1);
+	}
+	
+	/**
+	 * Logs the round of the first seat, records it in the metrics and
+	 * publishes it once every hand has been settled. The round is timed
+	 * here, once, rather than for each hand settled
+	 * @param {@code boolean} -- the dealer went over 21
+	 */
+	private void endRound(boolean dealerBust){
+		if(metrics != null)
+			metrics.roundPlayed(System.nanoTime() - handStart, dealerBust);
+		if(history != null)
+			log(lastOutcomes[0]);
+		publish();
+	}
+	
+	/**
+	 * Copies the pots and outcomes of the round into the published fields.
+	 * The sequence number is made odd before the first write and even again
+	 * after the last, so a reader can tell it saw a round half written
+	 */
+	private void publish(){
+		long seq = sequence.getPlain();
+		sequence.setOpaque(seq + 1);
+		VarHandle.storeStoreFence();
+		rounds++;
+		for(int s = 0; s < players.length; ++s){
+			shownPots[s] = players[s].getPot();
+			shownOutcomes[s] = lastOutcomes[s];
+		}
+		sequence.setRelease(seq + 2);
+	}
+	
+	/**
+	 * The state of the table at the end of the last round, safe to call from
+	 * any thread. Never blocks the thread playing the table, a read that
+	 * overlaps the end of a round is simply tried again
+	 * @return {@code Snapshot}
+	 */
+	public Snapshot snapshot(){
+		int n = players.length;
+		int[] pots = new int[n];
+		Outcome[] outcomes = new Outcome[n];
+		while(true){
+			long seq = sequence.getAcquire();
+			if((seq & 1) == 0){
+				long played = rounds;
+				System.arraycopy(shownPots, 0, pots, 0, n);
+				System.arraycopy(shownOutcomes, 0, outcomes, 0, n);
+				VarHandle.loadLoadFence();
+				if(sequence.getOpaque() == seq)
+					return new Snapshot(played, pots, outcomes);
+			}
+			Thread.onSpinWait();
+		}
+	}
+	
+	/**
+	 * The state of a table at the end of a round, as seen from another thread
+	 * @Immutable
+	 */
+	public static final class Snapshot{
+		private final long rounds;
+		private final int[] pots;
+		private final Outcome[] outcomes;
+		
+		private Snapshot(long rounds, int[] pots, Outcome[] outcomes){
+			this.rounds = rounds;
+			this.pots = pots;
+			this.outcomes = outcomes;
+		}
+		
+		//Rounds played at the table
+		public long rounds(){
+			return rounds;
+		}
+		
+		//Number of seats at the table
+		public int seats(){
+			return pots.length;
+		}
+		
+		//The pot of the player in a seat
+		public int pot(int seat){
+			return pots[seat];
+		}
+		
+		//How the last round ended at a seat, null before the first round
+		public Outcome lastOutcome(int seat){
+			return outcomes[seat];
+		}
+		
+		@Override public String toString(){
+			StringBuilder sb = new StringBuilder();
+			sb.append(rounds).append(" rounds");
+			for(int s = 0; s < pots.length; ++s)
+				sb.append(", seat ").append(s).append(": pot ").append(pots[s]).append(' ').append(outcomes[s]);
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Gets the bet for the next hand at a seat, from the strategy or from
+	 * the person at the console
+	 * @param {@code int} -- the seat
+	 * @return {@code int}
+	 */
+	private int getPlayerBet(int seat){
+		if(strategies[seat] != null)
+			return strategies[seat].nextBet(players[seat].getPot(), dealer.viewShoe().count());
+		prompt("Place your bet:");
+		while(true){
+			try{
+				int bet = Integer.parseInt(scan.nextLine().trim());
+				if(bet > 0)
+					return bet;
+			} catch(NumberFormatException nfe){
+				//not a number, asked again below
+			}
+			prompt("Invalid bet -- enter a whole number above 0:");
+		}
+	}
+	
+	//Settles a winning hand with the player in a seat
+	private void won(int seat, int h, boolean blackJack){
+		int bet = handBets[seat][h];
+		players[seat].won(bet, blackJack);
+		settled(seat, h, blackJack ? Outcome.BLACKJACK : Outcome.WIN,
+			blackJack ? GameEvent.Type.BLACKJACK : GameEvent.Type.WIN, rules.winnings(bet, blackJack));
+	}
+	
+	//Settles a losing hand with the player in a seat
+	private void lost(int seat, int h){
+		players[seat].lost(handBets[seat][h]);
+		settled(seat, h, Outcome.LOSS, GameEvent.Type.LOSE, -handBets[seat][h]);
+	}
+	
+	//Settles a tied hand with the player in a seat
+	private void push(int seat, int h){
+		players[seat].push(handBets[seat][h]);
+		settled(seat, h, Outcome.PUSH, GameEvent.Type.PUSH, 0);
+	}
+	
+	//Settles a surrendered hand with the player in a seat
+	private void surrendered(int seat, int h){
+		players[seat].surrender(handBets[seat][h]);
+		settled(seat, h, Outcome.SURRENDER, GameEvent.Type.SURRENDER, -rules.surrenderLoss(handBets[seat][h]));
+	}
+	
+	/**
+	 * Keeps the outcome of a hand of the seat, records it in the metrics and
+	 * the histogram and tells the listener
+	 * @param {@code int} -- seat, {@code int} -- hand, {@code Outcome}, {@code GameEvent.Type}
+	 * @param {@code int} -- money won on the hand, negative when lost
+	 */
+	private void settled(int seat, int h, Outcome outcome, GameEvent.Type type, int won){
+		if(h == 0)
+			lastOutcomes[seat] = outcome;
+		states[seat][h] = SETTLED;
+		if(metrics != null)
+			metrics.handPlayed(outcome, hands[seat][h].size() + dealer.viewHand().size());
+		if(outcomes != null){
+			Hand hand = hands[seat][h];
+			outcomes.record(hand.bestValue(), dealer.viewHand().bestValue(), outcome, handBets[seat][h], won, hand.size());
+		}
+		emit(type, seat, GameEvent.NO_CARD, players[seat].getPot());
+	}
+
+	//Appends the round of the first seat that was just settled to the log
+	private void log(Outcome outcome){
+		Shoe shoe = dealer.viewShoe();
+		try{
+			history.record(handSeed, handPosition, shoe.shuffleSeed() != handSeed, handBet, potBefore,
+				players[0].getPot() - potBefore, outcome, players[0].viewHand(), dealer.viewHand(),
+				moves, scripted ? moveCount : 0);
+		} catch(IOException ioe){
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	 /**
+	  * This method delegates much of the game to other helper methods.
+	  * This method begins with a do while loop. The do while plays the
+	  * game until the player runs out of chips. When he does, the do
+	  * loop asks  whether player wants to play again. If so, refresh
+	  * player money and continue, if no, end game.
+	  */
+	public void startGame(){
+		Player player = players[0];
+		while(true){
+			while(player.getPot() > 0)
+				playHand();
+			String response;
+			do{
+				prompt("Would you like to continue playing? (y/n):");
+				response = scan.nextLine().trim().toLowerCase();
+				if(response.startsWith("y"))
+					player.refreshPot();
+				else if(response.startsWith("n"))
+					return;
+			} while(!(response.startsWith("y") || response.startsWith("n")));
+		}
+	}
+		
+	//Closes the listener, letting it finish anything it is still writing, the ring of the bus and the log
+	public void close(){
+		listener.close();
+		if(events != null)
+			events.close();
+		if(history != null){
+			try{
+				history.close();
+			} catch(IOException ioe){
+				throw new UncheckedIOException(ioe);
+			}
+		}
+	}
+		
+	public static void main(String[] args){
+		Table t = Table.newTable();
+		try{
+			t.startGame();
+		} finally{
+			t.close();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+package blackjack;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Hosts many tables at once, one per connection. Each connection gets its
+ * own Table reading the players answers from the socket and writing the
+ * game back to it. The game and its renderer each run on a virtual thread,
+ * so a player thinking about a move only parks a virtual thread and
+ * thousands of sessions can be open at the same time.
+ *
+ * Open sessions are kept in a registry. Sessions that have not sent any
+ * input for longer than the idle timeout are closed by a reaper. The
+ * status of a session is read from its tables snapshot, so reporting never
+ * holds up a game, and every table records into one server wide Metrics.
+ */
+public final class TableServer implements AutoCloseable{
+	private final ServerSocket server;
+	private final long idleMillis;   //sessions idle longer than this are closed
+	private final int decks;         //decks in each tables shoe
+	private final ExecutorService games = Executors.newVirtualThreadPerTaskExecutor();
+	private final ThreadFactory renderers = Thread.ofVirtual().name("renderer-", 0).factory();
+	private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor();
+	private final ConcurrentMap<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+	private final Metrics metrics = new Metrics();
+	private final long started = System.nanoTime();
+	private long nextId;             //only used by the accepting thread
+
+	/**
+	 * Private constructor to be used in the static factory method
+	 * @param {@code ServerSocket}, {@code long}, {@code int}
+	 */
+	private TableServer(ServerSocket server, long idleMillis, int decks){
+		this.server = server;
+		this.idleMillis = idleMillis;
+		this.decks = decks;
+	}
+
+	/**
+	 * Static factory method, starts accepting connections on the port
+	 * @param {@code int} -- port, 0 picks a free one
+	 * @param {@code long} -- milliseconds a session may go without input
+	 * @param {@code int} -- decks in each tables shoe
+	 * @return {@code TableServer}
+	 */
+	public static TableServer start(int port, long idleMillis, int decks) throws IOException{
+		final TableServer s = new TableServer(new ServerSocket(port, 1024, InetAddress.getLoopbackAddress()), idleMillis, decks);
+		Thread.ofVirtual().name("acceptor").start(new Runnable(){
+			public void run(){
+				s.accept();
+			}
+		});
+		long period = Math.max(1, idleMillis / 4);
+		s.reaper.scheduleAtFixedRate(new Runnable(){
+			public void run(){
+				s.reap();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+		return s;
+	}
+
+	//The port the server is listening on
+	public int port(){
+		return server.getLocalPort();
+	}
+
+	//The sessions that are open right now
+	public Collection<Session> sessions(){
+		return Collections.unmodifiableCollection(sessions.values());
+	}
+
+	//Counters for every table the server has hosted
+	public Metrics metrics(){
+		return metrics;
+	}
+
+	//Accepts connections until the server is closed
+	private void accept(){
+		try{
+			while(!server.isClosed()){
+				Socket socket = server.accept();
+				final Session s = new Session(nextId++, socket);
+				sessions.put(s.id, s);
+				games.execute(new Runnable(){
+					public void run(){
+						s.play();
+					}
+				});
+			}
+		} catch(IOException ioe){
+			//the server socket was closed
+		}
+	}
+
+	//Closes every session that has been idle for too long
+	private void reap(){
+		long now = System.currentTimeMillis();
+		for(Session s : sessions.values())
+			if(now - s.lastActivity > idleMillis)
+				s.close();
+	}
+
+	/**
+	 * A summary of the server and every open session
+	 * @return {@code String}
+	 */
+	public String status(){
+		StringBuilder sb = new StringBuilder();
+		Metrics.Snapshot m = metrics.snapshot();
+		double seconds = (System.nanoTime() - started) / 1e9;
+		sb.append(String.format("Sessions open: %d  Hands: %d  %.0f hands/sec%n",
+			sessions.size(), m.hands(), m.hands() / seconds));
+		for(Session s : sessions.values())
+			sb.append(s).append("\n");
+		return sb.toString();
+	}
+
+	//Stops accepting connections and closes every session
+	@Override public void close() throws IOException{
+		server.close();
+		reaper.shutdownNow();
+		for(Session s : sessions.values())
+			s.close();
+		games.shutdown();
+	}
+
+	/**
+	 * One connected player and the table they are playing at
+	 */
+	public final class Session{
+		private final long id;
+		private final Socket socket;
+		private final long opened = System.nanoTime();
+		private volatile long lastActivity = System.currentTimeMillis();
+		private volatile Table table; //set once the game has started
+
+		private Session(long id, Socket socket){
+			this.id = id;
+			this.socket = socket;
+		}
+
+		/**
+		 * Plays the game on the calling thread until the player quits,
+		 * disconnects or is reaped, then removes the session
+		 */
+		private void play(){
+			Table table = null;
+			try{
+				Scanner in = new Scanner(new Activity(socket.getInputStream()));
+				ConsoleRenderer out = ConsoleRenderer.create(socket.getOutputStream(), renderers);
+				table = Table.createTable(Player.joinGame(Hand.newHand(), 500), in, out, Shoe.createShoe(decks, 0.75));
+				table.setMetrics(metrics);
+				this.table = table;
+				table.startGame();
+			} catch(IOException ioe){
+				//could not read from or write to the socket
+			} catch(NoSuchElementException nse){
+				//the player disconnected or the session was reaped
+			} finally{
+				if(table != null)
+					table.close();
+				close();
+				sessions.remove(id);
+			}
+		}
+
+		//Closes the connection, the game thread ends at its next read
+		private void close(){
+			try{
+				socket.close();
+			} catch(IOException ioe){
+				//already closed
+			}
+		}
+
+		public long id(){
+			return id;
+		}
+
+		//Hands played in the session
+		public long hands(){
+			Table t = table;
+			return t == null ? 0 : t.snapshot().rounds();
+		}
+
+		//hands per second since the session was opened
+		public double handsPerSecond(){
+			return hands() * 1e9 / (System.nanoTime() - opened);
+		}
+
+		@Override public String toString(){
+			Table t = table;
+			if(t == null)
+				return String.format("Session %d: starting", id);
+			Table.Snapshot snap = t.snapshot();
+			return String.format("Session %d: %d hands, %.1f hands/sec, pot %d, idle %dms",
+				id, snap.rounds(), snap.rounds() * 1e9 / (System.nanoTime() - opened), snap.pot(0),
+				System.currentTimeMillis() - lastActivity);
+		}
+
+		/**
+		 * Marks the session active whenever the player sends something
+		 */
+		private final class Activity extends FilterInputStream{
+			private Activity(InputStream in){
+				super(in);
+			}
+
+			@Override public int read() throws IOException{
+				int b = super.read();
+				lastActivity = System.currentTimeMillis();
+				return b;
+			}
+
+			@Override public int read(byte[] b, int off, int len) throws IOException{
+				int n = super.read(b, off, len);
+				lastActivity = System.currentTimeMillis();
+				return n;
+			}
+		}
+	}
+
+	/**
+	 * Usage: java blackjack.TableServer [port] [idle seconds] [decks]
+	 */
+	public static void main(String[] args) throws Exception{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 4321;
+		long idle = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 300000;
+		int decks = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+		TableServer s = TableServer.start(port, idle, decks);
+		System.out.println("Listening on port " + s.port());
+		while(true){
+			Thread.sleep(10000);
+			System.out.println(s.status());
+		}
+	}
+}